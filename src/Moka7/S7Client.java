@@ -20,12 +20,15 @@ package Moka7;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
 import java.util.Date;
+import java.util.List;
 
 
 /**
@@ -53,6 +56,9 @@ public class S7Client
     public static final int errS7BufferTooSmall    = 0x000C;
     public static final int errS7FunctionError     = 0x000D;
     public static final int errS7InvalidParams     = 0x000E;           
+    public static final int errS7SizeOverPDU       = 0x000F;
+    // Max number of variables in a single multi-variable request
+    public static final int MaxVars = 20;
     
     // Public fields
     public boolean Connected = false;
@@ -63,6 +69,7 @@ public class S7Client
     private static final int ISOTCP = 102; // ISOTCP Port
     private static final int MinPduSize = 16;
     private static final int DefaultPduSizeRequested = 480;
+    private static final int DefaultAmQRequested = 8; // Parallel jobs requested
     private static final int IsoHSize = 7; // TPKT+COTP Header Size
     private static final int MaxPduSize = DefaultPduSizeRequested+IsoHSize; 
     
@@ -83,6 +90,8 @@ public class S7Client
     
     private short ConnType = S7.PG; 
     private int _PDULength = 0;
+    private int _MaxJobs = 1;   // Parallel jobs negotiated (Max AmQ calling)
+    private int PDURef = 0x0500; // PDU reference of the next job
     
     // Telegrams
     // ISO Connection Request telegram (contains also ISO Header and COTP Header)
@@ -120,7 +129,7 @@ public class S7Client
         (byte)0x32, (byte)0x01, (byte)0x00, (byte)0x00, 
         (byte)0x04, (byte)0x00, (byte)0x00, (byte)0x08, 
         (byte)0x00, (byte)0x00, (byte)0xf0, (byte)0x00, 
-        (byte)0x00, (byte)0x01, (byte)0x00, (byte)0x01, 
+        (byte)0x00, (byte)0x01, (byte)0x00, (byte)0x01, // Max AmQ calling/called
         (byte)0x00, (byte)0x1e // PDU Length Requested = HI-LO 480 bytes
 	};
 
@@ -345,6 +354,8 @@ public class S7Client
                 return "S7 function refused by the CPU.";
             case errS7InvalidParams :
                 return "Invalid parameters supplied to the function.";
+            case errS7SizeOverPDU :
+                return "The multi-variable request exceeds the PDU size.";
             default : 
                 return "Unknown error : 0x"+Integer.toHexString(Error);
         }
@@ -358,6 +369,7 @@ public class S7Client
             TCPSocket = new Socket(); 
             TCPSocket.connect(sockaddr ,5000);
             TCPSocket.setTcpNoDelay(true);
+            TCPSocket.setSoTimeout(RecvTimeout);
             InStream = new DataInputStream(TCPSocket.getInputStream());
             OutStream = new DataOutputStream(TCPSocket.getOutputStream());           
         }
@@ -367,56 +379,58 @@ public class S7Client
         return LastError;
     }
     
-    private int WaitForData(int Size, int Timeout) 
+    private void FlushInput()
     {
-        int cnt = 0;
-        LastError=0;
-        int SizeAvail;
-        boolean Expired = false;
-        try 
-        {
-            SizeAvail=InStream.available();
-            while ((SizeAvail<Size) && (!Expired) && (LastError==0))
+        try {
+            int SizeAvail=InStream.available();
+            while (SizeAvail>0)
             {
-                
-                cnt++;
-                try {
-                    Thread.sleep(1);
-                } 
-                catch (InterruptedException ex) {
-                    LastError=errTCPDataRecvTout;
-                }
-                SizeAvail=InStream.available();              
-                Expired=cnt>Timeout;
-                // If timeout we clean the buffer
-                if (Expired && (SizeAvail>0) && (LastError==0))
-                  InStream.read(PDU, 0, SizeAvail);
+                InStream.skipBytes(SizeAvail);
+                SizeAvail=InStream.available();
             }
-        } 
-        catch (IOException ex) 
-        {
-            LastError=errTCPDataRecvTout;
+        } catch (IOException ex) {
+            // Nothing to flush
         }
-        if (cnt>=Timeout)
-        {
-            LastError=errTCPDataRecvTout;
-        }        
-        return LastError;
     }
     
+    // Blocks on the socket until the requested bytes have arrived, so the
+    // caller wakes up as soon as the payload is there instead of polling
+    // InStream.available() every millisecond. SO_TIMEOUT only bounds a single
+    // read(), so the receive timeout is a deadline for the whole packet: before
+    // each read the socket timeout is shrunk to the time left.
     private int RecvPacket(byte[] Buffer, int Start, int Size)
     {
-	int BytesRead=0;
-        LastError=WaitForData(Size,RecvTimeout);
-	if (LastError==0)
-        {
-            try {
-                BytesRead = InStream.read(Buffer, Start, Size);
-            } catch (IOException ex) {
-                LastError=errTCPDataRecv;
+        LastError=0;
+        try {
+            long Deadline = System.nanoTime() + RecvTimeout * 1000000L;
+            int Offset = Start;
+            while (Offset < Start + Size)
+            {
+                if (RecvTimeout > 0)
+                {
+                    long Remaining = (Deadline - System.nanoTime() + 999999L) / 1000000L;
+                    if (Remaining <= 0)
+                        throw new SocketTimeoutException();
+                    TCPSocket.setSoTimeout((int) Remaining);
+                }
+                else
+                    TCPSocket.setSoTimeout(0);
+                int Read = InStream.read(Buffer, Offset, Start + Size - Offset);
+                if (Read < 0)
+                    throw new EOFException();
+                Offset += Read;
             }
-            if (BytesRead==0)
-                LastError=errTCPConnectionReset;        
+        } 
+        catch (SocketTimeoutException ex) {
+            LastError=errTCPDataRecvTout;
+            // If timeout we clean the buffer
+            FlushInput();
+        }
+        catch (EOFException ex) {
+            LastError=errTCPConnectionReset;
+        }
+        catch (IOException ex) {
+            LastError=errTCPDataRecv;
         }
         return LastError;
     }
@@ -503,7 +517,9 @@ public class S7Client
     private int NegotiatePduLength()
     {
         int Length;
-        // Set PDU Size Requested
+        // Set Max AmQ calling/called and PDU Size Requested
+        S7.SetWordAt(S7_PN,19,DefaultAmQRequested);
+        S7.SetWordAt(S7_PN,21,DefaultAmQRequested);
         S7.SetWordAt(S7_PN,23,DefaultPduSizeRequested);            
         // Sends the connection request telegram
         SendPacket(S7_PN);
@@ -517,6 +533,8 @@ public class S7Client
                 {
                     // Get PDU Size Negotiated
                     _PDULength = S7.GetWordAt(PDU,25);
+                    // Get the parallel jobs we may have in flight (Max AmQ calling)
+                    _MaxJobs = Math.max(1, Math.min(DefaultAmQRequested, S7.GetWordAt(PDU,21)));
                     if (_PDULength>0)
                         return 0;
                     else
@@ -562,6 +580,7 @@ public class S7Client
                 InStream.close();
                 TCPSocket.close();
                 _PDULength=0;
+                _MaxJobs=1;
             } catch (IOException ex) {            
             }
             Connected=false;
@@ -580,6 +599,12 @@ public class S7Client
         return _PDULength;
     }
     
+    // Parallel jobs (requests in flight) negotiated with the CPU
+    public int MaxJobs()
+    {
+        return _MaxJobs;
+    }
+    
     public void SetConnectionParams(String Address, int LocalTSAP, int RemoteTSAP)
     {
         int LocTSAP = LocalTSAP & 0x0000FFFF;
@@ -591,185 +616,556 @@ public class S7Client
         RemoteTSAP_LO= (byte) (RemTSAP & 0x00FF);      
     }
  
-    public int ReadArea(int Area, int DBNumber, int Start, int Amount, byte[] Data)
+    // A job of a pipelined transfer, split in chunks of one telegram each
+    private interface PipelinedJob
     {
-	int Address;
-	int NumElements;
-	int MaxElements;
-	int TotElements;
-	int SizeRequested;
-	int Length;
-	int Offset = 0;
-	int WordSize = 1;
+        // Builds the request of the chunk into PDU and returns its size (0 on error)
+        int BuildRequest(int Chunk);
+        // Checks the reply of the chunk (already in PDU), sets LastError
+        void CheckReply(int Chunk, int Length);
+    }
+
+    /**
+     * Runs the chunks of a job keeping up to MaxJobs() requests in flight.
+     * Each request carries its own PDU reference, so replies are matched to
+     * their chunk even if the CPU answers out of order; replies with an
+     * unknown reference (left over from a previous timed out job) are skipped.
+     * After an S7 error no more requests are sent, but the outstanding replies
+     * are still received to keep the connection in step.
+     */
+    private int RunPipelined(int Chunks, PipelinedJob Job)
+    {
+        int Jobs = Math.max(1, Math.min(_MaxJobs, Chunks));
+        int BaseRef = PDURef;
+        int Sent = 0;
+        int Received = 0;
+        int JobError = 0;
+        int Size;
+        int Length;
+        int Chunk;
+        boolean[] Done = new boolean[Chunks];
+
+        PDURef = (PDURef + Chunks) & 0xFFFF;
+        LastError=0;
+        while ((Received<Sent) || ((Sent<Chunks) && (JobError==0)))
+        {
+            // Fills the pipeline
+            while ((JobError==0) && (Sent<Chunks) && (Sent-Received<Jobs))
+            {
+                Size=Job.BuildRequest(Sent);
+                if (LastError!=0)
+                    return LastError;
+                S7.SetWordAt(PDU,11,(BaseRef+Sent) & 0xFFFF);
+                SendPacket(PDU, Size);
+                if (LastError!=0)
+                    return LastError;
+                Sent++;
+            }
+            Length=RecvIsoPacket();
+            if (LastError!=0)
+                return LastError;
+            Chunk=(S7.GetWordAt(PDU,11)-BaseRef) & 0xFFFF;
+            if ((Chunk<Sent) && !Done[Chunk])
+            {
+                Done[Chunk]=true;
+                Received++;
+                if (JobError==0)
+                {
+                    Job.CheckReply(Chunk, Length);
+                    JobError=LastError;
+                    LastError=0;
+                }
+            }
+        }
+        LastError=JobError;
+        return LastError;
+    }
+
+    public int ReadArea(final int Area, final int DBNumber, final int Start, final int Amount, final byte[] Data)
+    {
+	final int WordSize;
+	final int MaxElements;
 	     
 	LastError=0;
 		
 	// If we are addressing Timers or counters the element size is 2
 	if ((Area==S7.S7AreaCT) || (Area==S7.S7AreaTM))
             WordSize = 2;
+        else
+            WordSize = 1;
 	
         MaxElements=(_PDULength-18) / WordSize; // 18 = Reply telegram header
-            TotElements=Amount;
+        if (Amount<=0)
+            return LastError;
+        if (MaxElements<=0)
+        {
+            LastError=errS7InvalidPDU;
+            return LastError;
+        }
 	
-        while ((TotElements>0) && (LastError==0))
+        return RunPipelined((Amount+MaxElements-1) / MaxElements, new PipelinedJob()
         {
-            NumElements=TotElements;
-            if (NumElements>MaxElements)
-               NumElements=MaxElements;
-
-            SizeRequested = NumElements * WordSize;
+            @Override
+            public int BuildRequest(int Chunk)
+            {
+                int Address;
+                int NumElements = Math.min(MaxElements, Amount-Chunk*MaxElements);
 
-            // Setup the telegram
-            System.arraycopy(S7_RW, 0, PDU, 0, Size_RD);
-            // Set DB Number
-            PDU[27] = (byte) Area;
-            // Set Area
-            if (Area==S7.S7AreaDB) 
-                S7.SetWordAt(PDU,25,DBNumber);
+                // Setup the telegram
+                System.arraycopy(S7_RW, 0, PDU, 0, Size_RD);
+                // Set DB Number
+                PDU[27] = (byte) Area;
+                // Set Area
+                if (Area==S7.S7AreaDB) 
+                    S7.SetWordAt(PDU,25,DBNumber);
 
-            // Adjusts Start and word length
-            if ((Area==S7.S7AreaCT) || (Area==S7.S7AreaTM))
-            {
-                Address = Start;
-                if (Area==S7.S7AreaCT)
-                    PDU[22]=S7WLCounter;
+                // Adjusts Start and word length
+                if ((Area==S7.S7AreaCT) || (Area==S7.S7AreaTM))
+                {
+                    Address = Start+Chunk*MaxElements*WordSize;
+                    if (Area==S7.S7AreaCT)
+                        PDU[22]=S7WLCounter;
+                    else
+                        PDU[22]=S7WLTimer;
+                }
                 else
-                    PDU[22]=S7WLTimer;
-            }
-            else
-                Address = Start<<3;
+                    Address = (Start+Chunk*MaxElements*WordSize)<<3;
 
-            // Num elements
-            S7.SetWordAt(PDU,23,NumElements);
+                // Num elements
+                S7.SetWordAt(PDU,23,NumElements);
 
-            // Address into the PLC (only 3 bytes)           
-            PDU[30] = (byte) (Address & 0x0FF);
-            Address = Address >> 8;
-            PDU[29] = (byte) (Address & 0x0FF);
-            Address = Address >> 8;
-            PDU[28] = (byte) (Address & 0x0FF);         
-            
-            SendPacket(PDU, Size_RD);
-            if (LastError==0)
+                // Address into the PLC (only 3 bytes)           
+                PDU[30] = (byte) (Address & 0x0FF);
+                Address = Address >> 8;
+                PDU[29] = (byte) (Address & 0x0FF);
+                Address = Address >> 8;
+                PDU[28] = (byte) (Address & 0x0FF);
+                return Size_RD;
+            }
+
+            @Override
+            public void CheckReply(int Chunk, int Length)
             {
-                Length=RecvIsoPacket();
-                if (LastError==0)
+                int SizeRequested = Math.min(MaxElements, Amount-Chunk*MaxElements) * WordSize;
+                if (Length>=25)
                 {
-                    if (Length>=25)
-                    {
-                        if ((Length-25==SizeRequested) && (PDU[21]==(byte)0xFF))
-                        {
-                            System.arraycopy(PDU, 25, Data, Offset, SizeRequested);
-                            Offset+=SizeRequested;
-                        }
-                        else
-                            LastError = errS7DataRead;
-                    }
+                    if ((Length-25==SizeRequested) && (PDU[21]==(byte)0xFF))
+                        System.arraycopy(PDU, 25, Data, Chunk*MaxElements*WordSize, SizeRequested);
                     else
-                        LastError = errS7InvalidPDU;
+                        LastError = errS7DataRead;
                 }
+                else
+                    LastError = errS7InvalidPDU;
             }
-
-            TotElements -= NumElements;
-            Start += NumElements*WordSize;
-        }
-        return LastError;
+        });
     }
 
-    public int WriteArea(int Area, int DBNumber, int Start, int Amount, byte[] Data)
+    public int WriteArea(final int Area, final int DBNumber, final int Start, final int Amount, final byte[] Data)
     {
-	int Address;
-	int NumElements;
-	int MaxElements;
-	int TotElements;
-	int DataSize;
-	int IsoSize;
-	int Length;
-	int Offset = 0;
-	int WordSize = 1;
+	final int WordSize;
+	final int MaxElements;
      
 	LastError=0;
 	
 	// If we are addressing Timers or counters the element size is 2
 	if ((Area==S7.S7AreaCT) || (Area==S7.S7AreaTM))
             WordSize = 2;
+        else
+            WordSize = 1;
 
         MaxElements=(_PDULength-35) / WordSize; // 18 = Reply telegram header
-	TotElements=Amount;
-	
-        while ((TotElements>0) && (LastError==0))
+        if (Amount<=0)
+            return LastError;
+        if (MaxElements<=0)
         {
-            NumElements=TotElements;
-            if (NumElements>MaxElements)
-               NumElements=MaxElements;
+            LastError=errS7InvalidPDU;
+            return LastError;
+        }
 
-            DataSize = NumElements * WordSize;
-            IsoSize  = Size_WR + DataSize;
+        return RunPipelined((Amount+MaxElements-1) / MaxElements, new PipelinedJob()
+        {
+            @Override
+            public int BuildRequest(int Chunk)
+            {
+                int Address;
+                int Length;
+                int NumElements = Math.min(MaxElements, Amount-Chunk*MaxElements);
+                int DataSize = NumElements * WordSize;
+                int IsoSize  = Size_WR + DataSize;
+                int Offset = Chunk*MaxElements*WordSize;
 
-            // Setup the telegram
-            System.arraycopy(S7_RW, 0, PDU, 0, Size_WR);
-            // Whole telegram Size
-            S7.SetWordAt(PDU,2,IsoSize);
-            // Data Length
-            Length=DataSize+4;
-            S7.SetWordAt(PDU,15,Length);
-            // Function
-            PDU[17]= (byte) 0x05;
-            // Set DB Number
-            PDU[27] = (byte) Area;
-            if (Area==S7.S7AreaDB) 
-                S7.SetWordAt(PDU,25,DBNumber);
+                // Setup the telegram
+                System.arraycopy(S7_RW, 0, PDU, 0, Size_WR);
+                // Whole telegram Size
+                S7.SetWordAt(PDU,2,IsoSize);
+                // Data Length
+                Length=DataSize+4;
+                S7.SetWordAt(PDU,15,Length);
+                // Function
+                PDU[17]= (byte) 0x05;
+                // Set DB Number
+                PDU[27] = (byte) Area;
+                if (Area==S7.S7AreaDB) 
+                    S7.SetWordAt(PDU,25,DBNumber);
 
-            // Adjusts Start and word length
-            if ((Area==S7.S7AreaCT) || (Area==S7.S7AreaTM))
-            {
-                Address = Start;
-                Length = DataSize;
-                if (Area==S7.S7AreaCT)
-                    PDU[22]=S7WLCounter;
+                // Adjusts Start and word length
+                if ((Area==S7.S7AreaCT) || (Area==S7.S7AreaTM))
+                {
+                    Address = Start+Offset;
+                    Length = DataSize;
+                    if (Area==S7.S7AreaCT)
+                        PDU[22]=S7WLCounter;
+                    else
+                        PDU[22]=S7WLTimer;
+                }
                 else
-                    PDU[22]=S7WLTimer;
+                {
+                    Address = (Start+Offset)<<3;
+                    Length  = DataSize<<3;
+                }
+                // Num elements
+                S7.SetWordAt(PDU,23,NumElements);
+                // Address into the PLC
+                PDU[30] = (byte) (Address & 0x0FF);
+                Address = Address >> 8;
+                PDU[29] = (byte) (Address & 0x0FF);
+                Address = Address >> 8;
+                PDU[28] = (byte) (Address & 0x0FF);
+                // Length
+                S7.SetWordAt(PDU,33,Length);
+            
+                // Copies the Data
+                System.arraycopy(Data, Offset, PDU, 35, DataSize);
+                return IsoSize;
             }
-            else
+
+            @Override
+            public void CheckReply(int Chunk, int Length)
             {
-                Address = Start<<3;
-                Length  = DataSize<<3;
+                if (Length==22)
+                {
+                    if ((S7.GetWordAt(PDU,17)!=0) || (PDU[21]!=(byte)0xFF))
+                        LastError = errS7DataWrite;
+                }
+                else
+                    LastError = errS7InvalidPDU;
             }
-            // Num elements
-            S7.SetWordAt(PDU,23,NumElements);
-            // Address into the PLC
-            PDU[30] = (byte) (Address & 0x0FF);
-            Address = Address >> 8;
-            PDU[29] = (byte) (Address & 0x0FF);
-            Address = Address >> 8;
-            PDU[28] = (byte) (Address & 0x0FF);
-            // Length
-            S7.SetWordAt(PDU,33,Length);
-            
-            // Copies the Data
-            System.arraycopy(Data, Offset, PDU, 35, DataSize);
-                        
-            SendPacket(PDU, IsoSize);
-            if (LastError==0)
+        });
+    }
+   
+    // Var spec. of a multi-variable request item (12 bytes at Pos)
+    private void SetItemSpec(int Pos, S7DataItem Item)
+    {
+        int Address = Item.Start<<3;
+        PDU[Pos]   = (byte) 0x12; // Var spec.
+        PDU[Pos+1] = (byte) 0x0a; // Length of remaining bytes
+        PDU[Pos+2] = (byte) 0x10; // Syntax ID
+        PDU[Pos+3] = S7WLByte;    // Transport Size
+        S7.SetWordAt(PDU,Pos+4,Item.Amount);
+        if (Item.Area==S7.S7AreaDB)
+            S7.SetWordAt(PDU,Pos+6,Item.DBNumber);
+        else
+            S7.SetWordAt(PDU,Pos+6,0);
+        PDU[Pos+8] = (byte) Item.Area;
+        PDU[Pos+11] = (byte) (Address & 0x0FF);
+        Address = Address >> 8;
+        PDU[Pos+10] = (byte) (Address & 0x0FF);
+        Address = Address >> 8;
+        PDU[Pos+9] = (byte) (Address & 0x0FF);
+    }
+    
+    private boolean ValidItems(S7DataItem[] Items, int ItemsCount)
+    {
+        if ((Items==null) || (ItemsCount<1) || (ItemsCount>MaxVars) || (ItemsCount>Items.length))
+            return false;
+        for (int c = 0; c < ItemsCount; c++)
+        {
+            S7DataItem Item = Items[c];
+            if ((Item==null) || (Item.Area==S7.S7AreaCT) || (Item.Area==S7.S7AreaTM) || (Item.Amount<1) ||
+                (Item.Data==null) || (Item.DataOffset<0) || (Item.DataOffset+Item.Amount>Item.Data.length))
+                return false;
+        }
+        return true;
+    }
+
+    // Builds a multi-variable read request into PDU, returns its size (0 on error)
+    private int BuildReadMultiVars(S7DataItem[] Items, int ItemsCount)
+    {
+        int ReplySize = 14; // S7 Header + function + items count
+        int IsoSize;
+
+        if (!ValidItems(Items, ItemsCount))
+        {
+            LastError=errS7InvalidParams;
+            return 0;
+        }
+        for (int c = 0; c < ItemsCount; c++)
+            ReplySize+=4+Items[c].Amount+(Items[c].Amount % 2);
+        IsoSize = Size_RD-12+(ItemsCount*12);
+        if ((IsoSize-IsoHSize>_PDULength) || (ReplySize>_PDULength))
+        {
+            LastError=errS7SizeOverPDU;
+            return 0;
+        }
+
+        // Setup the telegram : S7_RW header up to the items count
+        System.arraycopy(S7_RW, 0, PDU, 0, 19);
+        S7.SetWordAt(PDU,2,IsoSize);
+        S7.SetWordAt(PDU,13,2+(ItemsCount*12)); // Parameters Length
+        S7.SetWordAt(PDU,15,0);                 // Data Length
+        PDU[17] = (byte) 0x04;                  // Function 4 Read Var
+        PDU[18] = (byte) ItemsCount;
+        for (int c = 0; c < ItemsCount; c++)
+            SetItemSpec(19+(c*12), Items[c]);
+        return IsoSize;
+    }
+
+    // Checks a multi-variable read reply (in PDU) and copies the items data
+    private void CheckReadMultiVars(S7DataItem[] Items, int ItemsCount, int Length)
+    {
+        int Offset;
+        int ItemSize;
+
+        if ((Length>=22) && (PDU[20]==(byte)ItemsCount))
+        {
+            if (S7.GetWordAt(PDU,17)!=0)
+                LastError = errS7DataRead;
+            else
             {
-                Length=RecvIsoPacket();
-                if (LastError==0)
+                Offset = 21;
+                for (int c = 0; (c < ItemsCount) && (LastError!=errS7InvalidPDU); c++)
                 {
-                    if (Length==22)
+                    S7DataItem Item = Items[c];
+                    if (Offset+4>Length)
+                        LastError = errS7InvalidPDU;
+                    else if (PDU[Offset]==(byte)0xFF)
                     {
-                        if ((S7.GetWordAt(PDU,17)!=0) || (PDU[21]!=(byte)0xFF))
-                            LastError = errS7DataWrite;
+                        ItemSize = S7.GetWordAt(PDU,Offset+2);
+                        // Octet string, real and bit lengths are in bytes, the others in bits
+                        if ((PDU[Offset+1]!=0x09) && (PDU[Offset+1]!=0x07) && (PDU[Offset+1]!=0x03))
+                            ItemSize = ItemSize>>3;
+                        if (Offset+4+ItemSize>Length)
+                            LastError = errS7InvalidPDU;
+                        else
+                        {
+                            if (ItemSize==Item.Amount)
+                            {
+                                System.arraycopy(PDU, Offset+4, Item.Data, Item.DataOffset, ItemSize);
+                                Item.Result = 0;
+                            }
+                            else
+                            {
+                                Item.Result = errS7DataRead;
+                                LastError = errS7DataRead;
+                            }
+                            // Odd sizes are padded
+                            if (ItemSize % 2 != 0)
+                                ItemSize++;
+                            Offset+=4+ItemSize;
+                        }
                     }
                     else
-                        LastError = errS7InvalidPDU;
+                    {
+                        Item.Result = errS7DataRead;
+                        LastError = errS7DataRead;
+                        Offset+=4;
+                    }
                 }
             }
+        }
+        else
+            LastError = errS7InvalidPDU;
+    }
 
-            Offset+=DataSize;
-            TotElements -= NumElements;
-            Start += NumElements*WordSize;
+    // Builds a multi-variable write request into PDU, returns its size (0 on error)
+    private int BuildWriteMultiVars(S7DataItem[] Items, int ItemsCount)
+    {
+        int Offset;
+        int ParLength;
+        int DataLength = 0;
+        int IsoSize;
+
+        if (!ValidItems(Items, ItemsCount))
+        {
+            LastError=errS7InvalidParams;
+            return 0;
         }
-        return LastError;
+        for (int c = 0; c < ItemsCount; c++)
+        {
+            DataLength+=4+Items[c].Amount;
+            if ((Items[c].Amount % 2 != 0) && (c < ItemsCount-1))
+                DataLength++;
+        }
+        ParLength = 2+(ItemsCount*12);
+        IsoSize = 17+ParLength+DataLength;
+        if (IsoSize-IsoHSize>_PDULength)
+        {
+            LastError=errS7SizeOverPDU;
+            return 0;
+        }
+
+        // Setup the telegram : S7_RW header up to the items count
+        System.arraycopy(S7_RW, 0, PDU, 0, 19);
+        S7.SetWordAt(PDU,2,IsoSize);
+        S7.SetWordAt(PDU,13,ParLength);
+        S7.SetWordAt(PDU,15,DataLength);
+        PDU[17] = (byte) 0x05;                  // Function 5 Write Var
+        PDU[18] = (byte) ItemsCount;
+        for (int c = 0; c < ItemsCount; c++)
+            SetItemSpec(19+(c*12), Items[c]);
+        // Data section
+        Offset = 17+ParLength;
+        for (int c = 0; c < ItemsCount; c++)
+        {
+            S7DataItem Item = Items[c];
+            PDU[Offset]   = (byte) 0x00;        // Reserved
+            PDU[Offset+1] = (byte) 0x04;        // Transport size
+            S7.SetWordAt(PDU,Offset+2,Item.Amount<<3);
+            System.arraycopy(Item.Data, Item.DataOffset, PDU, Offset+4, Item.Amount);
+            Offset+=4+Item.Amount;
+            if ((Item.Amount % 2 != 0) && (c < ItemsCount-1))
+                PDU[Offset++] = (byte) 0x00;    // Pad byte
+        }
+        return IsoSize;
+    }
+
+    // Checks a multi-variable write reply (in PDU) and sets the items result
+    private void CheckWriteMultiVars(S7DataItem[] Items, int ItemsCount, int Length)
+    {
+        if ((Length==21+ItemsCount) && (PDU[20]==(byte)ItemsCount))
+        {
+            if (S7.GetWordAt(PDU,17)!=0)
+                LastError = errS7DataWrite;
+            else
+            {
+                for (int c = 0; c < ItemsCount; c++)
+                {
+                    if (PDU[21+c]==(byte)0xFF)
+                        Items[c].Result = 0;
+                    else
+                    {
+                        Items[c].Result = errS7DataWrite;
+                        LastError = errS7DataWrite;
+                    }
+                }
+            }
+        }
+        else
+            LastError = errS7InvalidPDU;
+    }
+
+    /**
+     * Reads several variables with a single "read var" job. All the items must
+     * fit in the negotiated PDU, both in the request (12 bytes per item) and in
+     * the reply (4 bytes + data, padded to even, per item).
+     * 
+     * @param Items      Variables to read, the data is copied into Item.Data
+     * @param ItemsCount Number of items to read (max MaxVars)
+     * @return 0 if all the items were read, else the error (see Item.Result)
+     */
+    public int ReadMultiVars(final S7DataItem[] Items, final int ItemsCount)
+    {
+        LastError=0;
+        return RunPipelined(1, new PipelinedJob()
+        {
+            @Override
+            public int BuildRequest(int Chunk)
+            {
+                return BuildReadMultiVars(Items, ItemsCount);
+            }
+
+            @Override
+            public void CheckReply(int Chunk, int Length)
+            {
+                CheckReadMultiVars(Items, ItemsCount, Length);
+            }
+        });
+    }
+
+    /**
+     * Reads several "read var" telegrams (each one as for ReadMultiVars(Items, 
+     * ItemsCount), using all the items of the array) keeping up to MaxJobs()
+     * of them in flight.
+     * 
+     * @param Telegrams  Items of each telegram
+     * @return 0 if all the items were read, else the first error
+     */
+    public int ReadMultiVars(final List<S7DataItem[]> Telegrams)
+    {
+        LastError=0;
+        if (Telegrams.isEmpty())
+            return LastError;
+        return RunPipelined(Telegrams.size(), new PipelinedJob()
+        {
+            @Override
+            public int BuildRequest(int Chunk)
+            {
+                return BuildReadMultiVars(Telegrams.get(Chunk), Telegrams.get(Chunk).length);
+            }
+
+            @Override
+            public void CheckReply(int Chunk, int Length)
+            {
+                CheckReadMultiVars(Telegrams.get(Chunk), Telegrams.get(Chunk).length, Length);
+            }
+        });
+    }
+
+    /**
+     * Writes several variables with a single "write var" job. All the items
+     * must fit in the negotiated PDU (12 bytes of var spec. plus 4 bytes + data,
+     * padded to even, per item).
+     * 
+     * @param Items      Variables to write, the data is taken from Item.Data
+     * @param ItemsCount Number of items to write (max MaxVars)
+     * @return 0 if all the items were written, else the error (see Item.Result)
+     */
+    public int WriteMultiVars(final S7DataItem[] Items, final int ItemsCount)
+    {
+        LastError=0;
+        return RunPipelined(1, new PipelinedJob()
+        {
+            @Override
+            public int BuildRequest(int Chunk)
+            {
+                return BuildWriteMultiVars(Items, ItemsCount);
+            }
+
+            @Override
+            public void CheckReply(int Chunk, int Length)
+            {
+                CheckWriteMultiVars(Items, ItemsCount, Length);
+            }
+        });
+    }
+
+    /**
+     * Writes several "write var" telegrams (each one as for WriteMultiVars(Items, 
+     * ItemsCount), using all the items of the array) keeping up to MaxJobs()
+     * of them in flight.
+     * 
+     * @param Telegrams  Items of each telegram
+     * @return 0 if all the items were written, else the first error
+     */
+    public int WriteMultiVars(final List<S7DataItem[]> Telegrams)
+    {
+        LastError=0;
+        if (Telegrams.isEmpty())
+            return LastError;
+        return RunPipelined(Telegrams.size(), new PipelinedJob()
+        {
+            @Override
+            public int BuildRequest(int Chunk)
+            {
+                return BuildWriteMultiVars(Telegrams.get(Chunk), Telegrams.get(Chunk).length);
+            }
+
+            @Override
+            public void CheckReply(int Chunk, int Length)
+            {
+                CheckWriteMultiVars(Telegrams.get(Chunk), Telegrams.get(Chunk).length, Length);
+            }
+        });
     }
    
     public int GetAgBlockInfo(int BlockType, int BlockNumber, S7BlockInfo Block)
@@ -0,0 +1,39 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package Moka7;
+
+/**
+ * One variable of a multi-variable read or write job, see
+ * S7Client.ReadMultiVars and S7Client.WriteMultiVars (the Java counterpart
+ * of the Snap7 TS7DataItem). Only byte-wise access of the DB, PE, PA and MK
+ * areas is supported.
+ */
+public class S7DataItem {
+
+    public int Area;        // Area (S7.S7AreaDB, S7.S7AreaPE, ...)
+    public int DBNumber;    // DB Number (if Area is S7AreaDB, else ignored)
+    public int Start;       // Start byte in the area
+    public int Amount;      // Number of bytes
+    public byte[] Data;     // Destination (read) or source (write) buffer
+    public int DataOffset;  // Position of the variable inside Data
+    public int Result;      // Item result after the job (0 = ok)
+
+    public S7DataItem()
+    {
+        this.Area=S7.S7AreaDB;
+    }
+
+    public S7DataItem(int Area, int DBNumber, int Start, int Amount, byte[] Data, int DataOffset)
+    {
+        this.Area=Area;
+        this.DBNumber=DBNumber;
+        this.Start=Start;
+        this.Amount=Amount;
+        this.Data=Data;
+        this.DataOffset=DataOffset;
+    }
+}
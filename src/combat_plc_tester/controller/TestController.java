@@ -22,10 +22,18 @@ import combat_plc_tester.model.IO.InputInt;
 import combat_plc_tester.model.IO.OutputReal;
 import combat_plc_tester.model.IO.OutputBit;
 import combat_plc_tester.model.ModelFacade;
+import combat_plc_tester.model.PlcTarget;
+import combat_plc_tester.model.TestBench;
 import combat_plc_tester.controller.exceptions.BusinessModelException;
 import combat_plc_tester.model.moore.GraphElementRenderer;
 import combat_plc_tester.model.moore.SequentialTransition;
 import combat_plc_tester.model.moore.CombinatorialTransition;
+import combat_plc_tester.model.moore.CoveringArray;
+import combat_plc_tester.model.moore.CycleCoverageAlgorithm;
+import combat_plc_tester.model.moore.CycleGeneratorAlgorithm;
+import combat_plc_tester.model.moore.CycleStream;
+import combat_plc_tester.model.moore.TestClock;
+import combat_plc_tester.model.moore.TestPlan;
 import combat_plc_tester.model.moore.Transition;
 import combat_plc_tester.model.moore.Label;
 import combat_plc_tester.model.moore.State;
@@ -38,6 +46,8 @@ import combat_plc_tester.controller.exceptions.IPAddressChecker;
 import combat_plc_tester.controller.exceptions.ValidationModelException;
 import combat_plc_tester.view.CombatPlcTesterView;
 import combat_plc_tester.view.FlowType;
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -48,6 +58,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import javax.swing.SwingUtilities;
 
 
@@ -77,12 +89,20 @@ public class TestController {
     private CombatPlcTesterView combatplctesterview;                                    // The combatplc view. 
     private InputFactory inputfactory;                                                  // The input factory.
     private OutputFactory outputfactory;                                                // The output factory.
-    private Set<List<String>> testcyles;                                                // The cycles to test.                                                  
+    private CycleStream testcyles;                                                      // The cycles to test, streamed while generated.                                                  
     private Stack<Command> undoStack = new Stack<>();                                   // The undo stack.
     private Stack<Command> redoStack = new Stack<>();                                   // The redo stack.
     private String filepath;                                                            // The file path.
     private FileAdapter<ModelFacade> fileadapter = new SerializableFileAdapter<>();     // The file adapter.
+    private boolean persistcyclecache = true;                                           // Save the cycle cache next to the model file.
+    private boolean prefixsharing = false;                                              // Test the cycles in a prefix sharing test plan.
+    private int settlereads = 0;                                                        // Settle mode: consecutive matching reads of a state, 0 = fixed wait.
+    private boolean timersampling = false;                                              // Sample the outputs continuously during timer conditions.
     private volatile boolean stoprequested = false;                                     // The stoprequest test flag.
+    private volatile TestScope testscope;                                               // The scope of the running test, or null.
+    private volatile boolean testfailed = false;                                        // Set when a path fails on any test bench.
+    private static final int SHARDSIZE = 256;                                           // Maximum number of cycles a test bench takes at once when testing in parallel.
+    private static final int MAXSETTLEREADS = 100;                                      // Maximum number of consecutive matching reads in settle mode.
     
     /**
     * Constructor: TestController
@@ -114,6 +134,118 @@ public class TestController {
     public String getFilePath(){
         return filepath;
     }
+
+    public void setPersistCycleCache(boolean persistcyclecache) {
+        this.persistcyclecache = persistcyclecache;
+    }
+
+    public boolean getPersistCycleCache() {
+        return persistcyclecache;
+    }
+
+    public void setPrefixSharing(boolean prefixsharing) {
+        this.prefixsharing = prefixsharing;
+    }
+
+    public boolean getPrefixSharing() {
+        return prefixsharing;
+    }
+
+    /**
+    * Sets the strategy of the cycle generator: all the cycles up to the loop limits
+    * (`CycleGeneratorAlgorithm`), or a small set of cycles covering every transition and
+    * optionally every pair of consecutive transitions (`CycleCoverageAlgorithm`).
+    *
+    * @param coverage true to generate the covering cycles instead of all the cycles.
+    * @param transitionpairs true to also cover every pair of consecutive transitions.
+    */
+    public void setCycleCoverage(boolean coverage, boolean transitionpairs) {
+        ModelFacade.getInstance().getCycleGenerator().setStrategy(coverage
+                ? new CycleCoverageAlgorithm(transitionpairs) : new CycleGeneratorAlgorithm());
+    }
+
+    /**
+    * Sets the settle mode of the state tests. In settle mode there is no fixed wait of
+    * cycletime * ScalingFactor after writing the inputs of a transition: the outputs are read
+    * once per cycle time and the state passes as soon as they match it for the given number of
+    * consecutive reads. The cycletime * ScalingFactor is the timeout for the outputs to settle.
+    *
+    * @param settlereads the number of consecutive matching reads, must be within 0–100 (0 for the fixed wait).
+    */
+    public void setSettleMode(String settlereads) {
+        try {
+            int reads = Integer.parseInt(settlereads);
+            if (reads < 0 || reads > MAXSETTLEREADS) {
+                throw new BusinessModelException("Settle reads are valid from 0 to " + MAXSETTLEREADS + ".");
+            }
+            this.settlereads = reads;
+        } catch (NumberFormatException e) {
+            combatplctesterview.exceptionErrorView("Number format error: " + e.getMessage());
+        } catch (BusinessModelException e) {
+            combatplctesterview.exceptionErrorView(e.getMessage());
+        }
+    }
+
+    public int getSettleMode() {
+        return settlereads;
+    }
+
+    /**
+    * Sets the sampling mode of the timed state tests. The outputs are read continuously during
+    * a timer condition instead of at 3 or 4 checkpoints: glitches between the checkpoints fail
+    * the test, and the switching time is measured and checked against
+    * TimerCondition +/- TimerConditionTolerance.
+    *
+    * @param timersampling true to sample the timer conditions.
+    */
+    public void setTimerSampling(boolean timersampling) {
+        this.timersampling = timersampling;
+    }
+
+    public boolean getTimerSampling() {
+        return timersampling;
+    }
+
+    /**
+     * Returns the file of the cycle cache of the model: next to the model file, with the
+     * extension ".cycles" added.
+     *
+     * @return File - The cycle cache file, or null if the model has no file or the cache is not persisted.
+     */
+    private File getCycleCacheFile() {
+        if (!persistcyclecache || filepath == null) {
+            return null;
+        }
+        String modelfilepath = filepath.endsWith(".cmb") ? filepath : filepath + ".cmb";
+        return new File(modelfilepath + ".cycles");
+    }
+
+    /**
+     * Loads the cycle cache saved next to the model file into the cycle cache of the model.
+     * A missing or unreadable cache file only means the cycles are generated again.
+     */
+    private void loadCycleCache() {
+        File file = getCycleCacheFile();
+        if (file != null && file.isFile()) {
+            try {
+                ModelFacade.getInstance().getCycleGenerator().getCycleCache().load(file);
+            } catch (Exception e) {
+                updateViewTestPaths("Cycle cache not loaded: " + e.getMessage());
+            }
+        }
+    }
+
+    // Saves the cycle cache of the model next to the model file.
+    private void saveCycleCache() {
+        File file = getCycleCacheFile();
+        if (file != null) {
+            try {
+                ModelFacade.getInstance().getCycleGenerator().getCycleCache().save(file);
+            } catch (IOException e) {
+                updateViewTestPaths("Cycle cache not saved: " + e.getMessage());
+            }
+        }
+    }
     
     public void saveToFile() {
         try {
@@ -278,9 +410,66 @@ public class TestController {
         }
     }
 
-    // Signals that the ongoing test should stop by setting the `stoprequested` flag to true.
+    /**
+    * Adds a PLC target the model is tested on, in parallel with the PLC of the properties.
+    * The cycles of a test run are sharded over the PLC and the additional targets, each tested
+    * with its own connection, and the results are merged into one report.
+    *
+    * @param IPaddress The IP address of the PLC, must be valid.
+    * @param plcrack The rack number of the PLC, must be a valid short within 0–31.
+    * @param plcslot The slot number of the PLC, must be a valid short within 0–31.
+    * @param DBinputs The data building block number for inputs, must be a short within the range 1–59999.
+    * @param DBoutputs The data building block number for outputs, must be a short within the range 1–59999.
+    */
+    public void addPlcTarget(String IPaddress, String plcrack, String plcslot, String DBinputs, String DBoutputs) {
+        try {
+            if (!IPAddressChecker.checkIPAddress(IPaddress)) {
+                throw new ValidationModelException("IP address not valid.");
+            }
+            short rack = Short.parseShort(plcrack);
+            if (rack < 0 || rack > 31) {
+                throw new BusinessModelException("Rack number is valid from 0 to 31.");
+            }
+            short slot = Short.parseShort(plcslot);
+            if (slot < 0 || slot > 31) {
+                throw new BusinessModelException("Slot number is valid from 0 to 31.");
+            }
+            short _DBinputs = Short.parseShort(DBinputs);
+            if (_DBinputs < 1 || _DBinputs > 59999) {
+                throw new BusinessModelException("Data buildingblock input number is valid from 1 to 59999.");
+            }
+            short _DBoutputs = Short.parseShort(DBoutputs);
+            if (_DBoutputs < 1 || _DBoutputs > 59999) {
+                throw new BusinessModelException("Data buildingblock output number is valid from 1 to 59999.");
+            }
+            ModelFacade.getInstance().addPlcTarget(new PlcTarget(IPaddress, rack, slot, _DBinputs, _DBoutputs));
+        } catch (NumberFormatException e) {
+            combatplctesterview.getPropertiesView().exceptionErrorView("Number format error: " + e.getMessage());
+        } catch (ValidationModelException e) {
+            combatplctesterview.getPropertiesView().exceptionErrorView(e.getMessage());
+        } catch (BusinessModelException e) {
+            combatplctesterview.getPropertiesView().exceptionErrorView(e.getMessage());
+        } catch (Exception e) {
+            combatplctesterview.getPropertiesView().exceptionErrorView("An unexpected error occurred: " + e.getMessage());
+        }
+    }
+
+    public void removePlcTarget(PlcTarget plctarget) {
+        ModelFacade.getInstance().removePlcTarget(plctarget);
+    }
+
+    public List<PlcTarget> getPlcTargets() {
+        return new ArrayList<>(ModelFacade.getInstance().getPlcTargetList());
+    }
+
+    // Signals that the ongoing test should stop by setting the `stoprequested` flag to true,
+    // and interrupts the test run so it stops promptly (also while waiting on a timer condition).
     public void stopRequest(){
         stoprequested = true;
+        TestScope runscope = testscope;
+        if (runscope != null) {
+            runscope.cancel();
+        }
     }
     
     /**
@@ -1692,7 +1881,81 @@ public class TestController {
         combinatorialTransition.deleteSequentialTransitionToExclude(sequentialTransition);
         combatplctesterview.getCombinatorialTransitionView().viewSequentialTransitionsFromCombinatorialTransition(combinatorialTransition.getTransitionsToExlcude());
     }
-   
+
+    /**
+    * Sets the covering array mode of a combinatorial transition: with a strength t, only a set of
+    * combinations covering every combination of values of every t bit-type inputs is tested
+    * (still without the excluded sequential transitions), instead of all combinations.
+    *
+    * @param combinatorialTransitionID The ID of the combinatorial transition.
+    * @param coveringstrength The strength t, must be within 0–4 (0 tests all combinations).
+    */
+    public void setCoveringStrength(String combinatorialTransitionID, String coveringstrength) {
+        Transition transition = ModelFacade.getInstance().getTransitionByID(combinatorialTransitionID);
+        try {
+            if (!(transition instanceof CombinatorialTransition)) {
+                throw new BusinessModelException("Transition with ID " + combinatorialTransitionID + " is not a combinatorial transition.");
+            }
+            int strength = Integer.parseInt(coveringstrength);
+            if (strength < 0 || strength > CoveringArray.MAXSTRENGTH) {
+                throw new BusinessModelException("Covering strength is valid from 0 to " + CoveringArray.MAXSTRENGTH + ".");
+            }
+            ((CombinatorialTransition) transition).setCoveringStrength(strength);
+        } catch (NumberFormatException e) {
+            combatplctesterview.getCombinatorialTransitionView().exceptionErrorView("Number format error: " + e.getMessage());
+        } catch (BusinessModelException e) {
+            combatplctesterview.getCombinatorialTransitionView().exceptionErrorView(e.getMessage());
+        }
+    }
+
+    /**
+    * Adds a bit-type input to the relevant inputs of a combinatorial transition. Only the relevant
+    * inputs are combined, the other bit-type inputs of the model keep their initial value, so the
+    * number of combinations does not grow with inputs the start state does not react to.
+    *
+    * @param combinatorialTransitionID The ID of the combinatorial transition.
+    * @param inputID The ID of the bit-type input.
+    */
+    public void addRelevantInputToCombinatorialTransition(String combinatorialTransitionID, String inputID) {
+        Transition transition = ModelFacade.getInstance().getTransitionByID(combinatorialTransitionID);
+        try {
+            if (!(transition instanceof CombinatorialTransition)) {
+                throw new BusinessModelException("Transition with ID " + combinatorialTransitionID + " is not a combinatorial transition.");
+            }
+            if (!(ModelFacade.getInstance().getInputByID(inputID) instanceof InputBit)) {
+                throw new BusinessModelException("Input with ID " + inputID + " is not a bit-type input.");
+            }
+            CombinatorialTransition combinatorialTransition = (CombinatorialTransition) transition;
+            if (combinatorialTransition.getRelevantInputs().contains(inputID)) {
+                throw new BusinessModelException("Combinatorial Transition already contains this relevant input.");
+            }
+            combinatorialTransition.addRelevantInput(inputID);
+        } catch (BusinessModelException e) {
+            combatplctesterview.getCombinatorialTransitionView().exceptionErrorView(e.getMessage());
+        }
+    }
+
+    public void deleteRelevantInputFromCombinatorialTransition(String combinatorialTransitionID, String inputID) {
+        Transition transition = ModelFacade.getInstance().getTransitionByID(combinatorialTransitionID);
+        if (transition instanceof CombinatorialTransition) {
+            ((CombinatorialTransition) transition).deleteRelevantInput(inputID);
+        }
+    }
+
+    /**
+    * Sets whether a combinatorial transition without relevant inputs infers them: only the bit-type
+    * inputs of its sequential transitions to exclude are combined, instead of all bit-type inputs.
+    *
+    * @param combinatorialTransitionID The ID of the combinatorial transition.
+    * @param inferrelevantinputs Whether to infer the relevant inputs.
+    */
+    public void setInferRelevantInputs(String combinatorialTransitionID, boolean inferrelevantinputs) {
+        Transition transition = ModelFacade.getInstance().getTransitionByID(combinatorialTransitionID);
+        if (transition instanceof CombinatorialTransition) {
+            ((CombinatorialTransition) transition).setInferRelevantInputs(inferrelevantinputs);
+        }
+    }
+
     /**
     * Adds an input to a specified transition with a provided value.
     *
@@ -2096,40 +2359,121 @@ public class TestController {
      
     /**
     * Waits for a specified amount of time based on the provided cycle time and scaling factor.
-    * This method combines sleeping and active waiting to efficiently manage time delays.
     *
     * The total wait time is calculated as: {@code cycletime * cycletimescalingfactor}.
-    * The method first uses {@code Thread.sleep()} for long wait durations to reduce CPU usage.
-    * For the final milliseconds, it employs active waiting using {@code Thread.yield()} 
+    * The wait is a deadline on the monotonic clock of `TestClock`, which parks the thread
+    * and only spins for the last (calibrated) microseconds, so it costs almost no CPU.
+    * An interrupt (stop requested) ends the wait early.
     *
     * @param cycletime the base cycle time in milliseconds.
     * @param cycletimescalingfactor the scaling factor applied to the cycle time.
     */
     private void waitForTime(long cycletime, long cycletimescalingfactor) {
-        long startTime = System.currentTimeMillis();
-        long endTime = startTime + (cycletime * cycletimescalingfactor);
-        while (true) {
-            long currentTime = System.currentTimeMillis();
-            long timeLeft = endTime - currentTime;
-            if (timeLeft <= 0) {
+        TestClock.waitFor(cycletime * cycletimescalingfactor);
+    }
+  
+    /**
+    * Returns the time needed to reach a state over a transition: the cycle time * ScalingFactor
+    * after writing the inputs, and the timer condition of the state if the transition has an
+    * after-time condition. Used by the test plan to choose the fastest known path to a state.
+    *
+    * @param transitionID the ID of the transition.
+    * @param stateID the ID of the state reached over the transition.
+    * @return the time in milliseconds.
+    */
+    private long getStepTime(String transitionID, String stateID) {
+        long steptime = ModelFacade.getInstance().getCycleTime() * ModelFacade.getInstance().getCycleTimeScalingFactor();
+        Transition transition = ModelFacade.getInstance().getTransitionByID(transitionID);
+        State state = ModelFacade.getInstance().getStateByID(stateID);
+        if (transition != null && transition.getAfterTimeCondition() && state != null && !stateID.equals("S0")) {
+            steptime = steptime + state.getTimerCondition() + state.getTimerConditionTolerance();
+        }
+        return steptime;
+    }
+
+    /**
+    * Writes the inputs of a transition of a path to test. A combinatorial transition is one
+    * element of the path and is expanded into its combinations to test here, as the test runs:
+    * each combination is written in turn, and the end state is tested after each combination
+    * but the last one, whose end state is the next state of the path.
+    *
+    * @param testbench the test bench.
+    * @param transitionID the ID of the transition.
+    * @param formatterModel the format of the logged times.
+    * @param log the test paths view (of this test bench).
+    * @return {@code false} if the end state failed (or was cancelled) after a combination, {@code true} otherwise.
+    */
+    private boolean executePathTransition(TestBench testbench, String transitionID, DateTimeFormatter formatterModel, Consumer<String> log) {
+        Transition transition = ModelFacade.getInstance().getTransitionByID(transitionID);
+        if (!(transition instanceof CombinatorialTransition)) {
+            testbench.executeTransitionTest(transition);
+            return true;
+        }
+        CombinatorialTransition combinatorialtransition = (CombinatorialTransition) transition;
+        State endstate = ModelFacade.getInstance().getStateByID(combinatorialtransition.getEndStateID());
+        int combinations = combinatorialtransition.getSequentialTransitionsToTest().size();
+        for (int k = 0; k < combinations; k++) {
+            SequentialTransition combination = combinatorialtransition.createSequentialTransitionToTest(k);
+            log.accept("-Writing inputs of combination " + combination.getTransitionID() + " (" + (k + 1) + "/" + combinations + ")");
+            testbench.executeTransitionTest(combination);
+            if (k == combinations - 1 || stoprequested || testfailed) {
                 break;
             }
-            if (timeLeft > 10) {
-                try {
-                    Thread.sleep(timeLeft - 2);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            } else {
+            // In settle mode the test of the end state waits for its outputs.
+            if (settlereads == 0) {
+                waitForTime(ModelFacade.getInstance().getCycleTime(), ModelFacade.getInstance().getCycleTimeScalingFactor());
+            }
+            log.accept("-Start Time for reading and comparing outputs : " + LocalDateTime.now().format(formatterModel));
+            boolean statepassed = testbench.executeStateTest(endstate, false, ModelFacade.getInstance().getCycleTime());
+            log.accept("-End Time for reading and comparing outputs : " + LocalDateTime.now().format(formatterModel));
+            if (!statepassed || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                while (System.currentTimeMillis() < endTime) {
-                    Thread.yield();
-                }
+    /**
+    * Reaches a state over a known path from the state the PLC is in, whose states have been tested before.
+    * The inputs of the transitions are written without testing the states on the way, but the
+    * timer conditions of these states are waited for, so the PLC takes the same transitions.
+    * The reached state is tested.
+    *
+    * @param testbench the test bench.
+    * @param route the path from the state of the PLC to the state (state, transition, ..., state),
+    *              the state alone if the PLC is already in it.
+    * @param formatterModel the formatter of the times in the test view.
+    * @param log the test paths view (of the test bench).
+    * @return true if the reached state passed its test, otherwise false.
+    */
+    private boolean reachState(TestBench testbench, List<String> route, DateTimeFormatter formatterModel, Consumer<String> log) {
+        String stateID = route.get(0);
+        boolean aftertimecondition = false;
+        for (int i = 1; i < route.size(); i = i + 2) {
+            if (aftertimecondition) {
+                State state = ModelFacade.getInstance().getStateByID(stateID);
+                waitForTime(state.getTimerCondition() + state.getTimerConditionTolerance(), 1);
+            }
+            Transition transition = ModelFacade.getInstance().getTransitionByID(route.get(i));
+            if (transition instanceof CombinatorialTransition) {
+                // Any combination to test reaches the end state, the first one is used.
+                testbench.executeTransitionTest(((CombinatorialTransition) transition).createSequentialTransitionToTest(0));
+            } else {
+                testbench.executeTransitionTest(transition);
+            }
+            // In settle mode the test of the reached state waits for its outputs.
+            if (settlereads == 0 || i < route.size() - 2) {
+                waitForTime(ModelFacade.getInstance().getCycleTime(), ModelFacade.getInstance().getCycleTimeScalingFactor());
             }
+            stateID = route.get(i + 1);
+            aftertimecondition = transition.getAfterTimeCondition() && !stateID.equals("S0");
         }
+        log.accept("-Start Time for reading and comparing outputs : " + LocalDateTime.now().format(formatterModel));
+        boolean statepassed = testbench.executeStateTest(ModelFacade.getInstance().getStateByID(stateID), aftertimecondition, ModelFacade.getInstance().getCycleTime());
+        log.accept("-End Time for reading and comparing outputs : " + LocalDateTime.now().format(formatterModel));
+        return statepassed;
     }
-  
+
     /**
     * Retrieves the PDU (Protocol Data Unit) length of the connected PLC client.
     * The PDU length represents the maximum size of data that can be exchanged
@@ -2153,8 +2497,12 @@ public class TestController {
     *         - An error message with the error code if there is an issue retrieving the status.
     */
     public String getPlcStatusString() {
+        return getPlcStatusString(ModelFacade.getInstance().getPlcClient());
+    }
+
+    private String getPlcStatusString(S7Client plcclient) {
         IntByRef statusRef = new IntByRef();
-        int errorCode = ModelFacade.getInstance().getPlcClient().GetPlcStatus(statusRef);
+        int errorCode = plcclient.GetPlcStatus(statusRef);
         if (errorCode != 0) {
             return "Error retrieving PLC status. Error code: " + errorCode;
         }
@@ -2175,7 +2523,6 @@ public class TestController {
     * 
     * Workflow:
     * 1. **Pre-Test Validation:**
-    *    - Updates combinatorial transitions with the current input list.
     *    - Validates required elements:
     *      - Ensures input and output lists are not empty.
     *      - Verifies the presence of transitions and at least two states.
@@ -2185,12 +2532,16 @@ public class TestController {
     *    - If any validation fails, the process terminates and an error is displayed.
     * 
     * 2. **PLC Connection:**
+    *    - Updates combinatorial transitions with the current input list (in the test task, as a
+    *      covering array may take a while to generate).
     *    - Attempts to connect to the PLC.
     *    - Ensures the PLC is in RUN mode before proceeding.
     *    - If the PLC connection fails, displays an error and exits.
     * 
     * 3. **Test Execution:**
     *    - Generates test cycles from the validated model.
+    *    - With additional PLC targets, the cycles are sharded over the test benches, which
+    *      test them in parallel (see `runTestBench`), and the results are merged into one report.
     *    - Iterates through each test path:
     *      - For each state in the path:
     *        - Executes the state test.
@@ -2206,15 +2557,11 @@ public class TestController {
     *    - Logs detailed results of the test execution.
     * 
     * Multi-threading:
-    * - Executes in a separate thread to keep the application responsive during testing.
+    * - Executes as a task of a `TestScope` (virtual threads where available) to keep the application
+    *   responsive during testing. The test benches are tasks of a nested scope: `stopRequest()` or a
+    *   failing path interrupts them, and the PLC connections are closed once all of them have finished.
     */
     public void execute() {
-        for (GraphElement graphelement : ModelFacade.getInstance().getTransitionGraphElementList()) {
-            if (graphelement instanceof CombinatorialTransition) {
-                CombinatorialTransition combinatorialtransition = (CombinatorialTransition) graphelement;
-                combinatorialtransition.updateTransitionToExclude(ModelFacade.getInstance().getInputList());
-            }
-        }
         stoprequested = false;
         try {
             if (ModelFacade.getInstance().getInputList() == null || ModelFacade.getInstance().getInputList().isEmpty()) {
@@ -2252,6 +2599,8 @@ public class TestController {
                     CombinatorialTransition transition = (CombinatorialTransition) graphElement;
                     if (transition.getSequentialTransitionsToExclude().isEmpty()) {
                         throw new BusinessModelException("CombinatorialTransition with ID " + transition.getTransitionID() + " does not contain any sequential transition to exlcude.");
+                    } else if (transition.getBitInputCount(ModelFacade.getInstance().getInputList()) > transition.getMaxBitInputs()) {
+                        throw new BusinessModelException("CombinatorialTransition with ID " + transition.getTransitionID() + " cannot combine more than " + transition.getMaxBitInputs() + " bit-type inputs.");
                     }
                 }
             }
@@ -2260,35 +2609,58 @@ public class TestController {
             combatplctesterview.setFlow(FlowType.MODEL);
             return;
         }
-        new Thread(new Runnable() {
+        // The test run is a task of its own scope, so a stop request interrupts it promptly.
+        TestScope runscope = new TestScope();
+        testscope = runscope;
+        runscope.fork(new Runnable() {
             @Override
             public void run() {
+                // The combinations of the combinatorial transitions (e.g. a covering array) are created here,
+                // not on the event dispatch thread, and a stop request interrupts their generation.
                 try {
-                    int connectionMessage = ModelFacade.getInstance().ConnectToPlc();
-                    if (connectionMessage != 0) {
-                        throw new BusinessModelException("PLC ErrorMessage (please try again): " + S7Client.ErrorText(connectionMessage));
+                    for (GraphElement graphelement : ModelFacade.getInstance().getTransitionGraphElementList()) {
+                        if (graphelement instanceof CombinatorialTransition) {
+                            CombinatorialTransition combinatorialtransition = (CombinatorialTransition) graphelement;
+                            combinatorialtransition.updateTransitionToExclude(ModelFacade.getInstance().getInputList());
+                        }
+                    }
+                } catch (CancellationException e) {
+                    return;
+                } catch (IllegalStateException e) {
+                    combatplctesterview.getTestView().exceptionErrorView(e.getMessage());
+                    return;
+                }
+                List<TestBench> testbenches = ModelFacade.getInstance().createTestBenches();
+                List<TestBench> connectedtestbenches = new ArrayList<>();
+                try {
+                    for (TestBench testbench : testbenches) {
+                        int connectionMessage = testbench.connect();
+                        if (connectionMessage != 0) {
+                            String target = testbenches.size() > 1 ? testbench.getPlcTarget() + ": " : "";
+                            throw new BusinessModelException("PLC ErrorMessage (please try again): " + target + S7Client.ErrorText(connectionMessage));
+                        }
+                        connectedtestbenches.add(testbench);
                     }
                 } catch (BusinessModelException e) {
+                    connectedtestbenches.forEach(TestBench::disconnect);
                     combatplctesterview.getTestView().exceptionErrorView(e.getMessage());
                     return;
                 } catch (Exception e) {
+                    connectedtestbenches.forEach(TestBench::disconnect);
                     combatplctesterview.getTestView().exceptionErrorView("Unkwown Error Message.");
                     return;
                 }
-                testcyles = ModelFacade.getInstance().generateCycles();
-                String stateID = "S0";
-                String transitionID = "T0";
-                String transitionstateID = "";
-                boolean statefailed = false;
-                boolean pathfailed = false;
-                
-                // Capture the start and end times for measurement.
-                LocalDateTime now = LocalDateTime.now();
-                DateTimeFormatter formatterTest = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-                DateTimeFormatter formatterModel = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
-                String formattedTime;
+                // The cycles are generated on a background thread while the test runs,
+                // unless the cycles of the unchanged model are cached.
+                loadCycleCache();
+                testcyles = ModelFacade.getInstance().streamCycles();
+                for (TestBench testbench : testbenches) {
+                    testbench.prepareTestRun(ModelFacade.getInstance().getInputList(), ModelFacade.getInstance().getOutputList());
+                }
+                testfailed = false;
                 
                 LocalDateTime currentDateTime = LocalDateTime.now();
+                DateTimeFormatter formatterTest = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
                
                 final String title0 = "***************************************************";
                 final String title1 = "*********Test on: " + currentDateTime.format(formatterTest) + "**********";
@@ -2297,31 +2669,128 @@ public class TestController {
                 updateViewTestPaths(title1);
                 updateViewTestPaths(title2);
                 updateViewTestPaths("-------------------------------------------------------------");
-                updateViewTestPaths("PLC Status : " + getPlcStatusString());
-                updateViewTestPaths("PDU Lenght : " + getPDULength());
-                updateViewTestPaths("-------------------------------------------------------------");
-                if (!getPlcStatusString().equals("PLC is in RUN mode.")) {
-                    return;
-                }
-                updateViewTestPaths("Paths to test:");
-                for (List<String> path : testcyles) {
-                    if (stoprequested) {
-                        break;
+                boolean running = true;
+                for (int i = 0; i < testbenches.size(); i++) {
+                    TestBench testbench = testbenches.get(i);
+                    if (testbenches.size() > 1) {
+                        updateViewTestPaths("Test bench [" + (i + 1) + "] : " + testbench.getPlcTarget());
                     }
-                    final String pathString = "path: " + path.toString();
-                    updateViewTestPaths(pathString);
+                    String plcstatus = getPlcStatusString(testbench.getPlcClient());
+                    updateViewTestPaths("PLC Status : " + plcstatus);
+                    updateViewTestPaths("PDU Lenght : " + testbench.getPlcClient().PDULength());
+                    updateViewTestPaths("-------------------------------------------------------------");
+                    running = running && plcstatus.equals("PLC is in RUN mode.");
                 }
+                if (!running) {
+                    testcyles.close();
+                    testbenches.forEach(TestBench::disconnect);
+                    return;
+                }
+                // Each path is tested as soon as it is generated.
+                updateViewTestPaths("Paths to test: generated while testing.");
                 updateViewTestPaths("-------------------------------------------------------------");            
                 updateViewTestPaths("");
-                for (List<String> path : testcyles) {
-                    if (pathfailed) {
+                // The test benches run as tasks of a scope: a stop request or a failing path cancels
+                // (interrupts) all of them, and the connections are closed once they have all finished.
+                try (TestScope benchscope = new TestScope()) {
+                    long starttime = System.currentTimeMillis();
+                    for (int i = 0; i < testbenches.size(); i++) {
+                        TestBench testbench = testbenches.get(i);
+                        // The cycles are sharded over several test benches: each bench takes the next cycles
+                        // from the stream when it is ready.
+                        int batchsize = !prefixsharing ? 1 : testbenches.size() == 1 ? TestPlan.MAXBATCH : SHARDSIZE;
+                        String prefix = testbenches.size() == 1 ? "" : "[" + (i + 1) + "] ";
+                        benchscope.fork(() -> {
+                            runTestBench(testbench, batchsize, text -> updateViewTestPaths(prefix + text));
+                            if (testfailed) {
+                                benchscope.cancel();
+                            }
+                        });
+                    }
+                    try {
+                        benchscope.join();
+                    } catch (InterruptedException e) {
+                        // Stop requested: the scope cancels the test benches.
+                        stoprequested = true;
+                    }
+                    if (testbenches.size() > 1) {
+                        reportTestBenches(testbenches, System.currentTimeMillis() - starttime);
+                    }
+                    // All the cycles have been generated and tested: report the coverage of the strategy, if any, and save the cycles.
+                    if (!testfailed && !stoprequested) {
+                        String coverage = ModelFacade.getInstance().getCycleCoverageReport();
+                        if (coverage != null) {
+                            updateViewTestPaths(coverage);
+                        }
+                        saveCycleCache();
+                    }
+                } finally {
+                    testcyles.close();
+                    testbenches.forEach(TestBench::disconnect);
+                    testscope = null;
+                }
+            }
+        });
+    }
+
+    /**
+    * Tests the generated cycles on a test bench until all cycles are tested, a path fails
+    * (on this or another test bench) or a stop is requested.
+    *
+    * The cycles are taken from the stream in batches of the cycles already generated and, with
+    * prefix sharing, tested in a test plan: a path continues where it leaves the prefix shared
+    * with the paths tested before it on this bench.
+    *
+    * @param testbench the test bench.
+    * @param batchsize the maximum number of cycles taken from the stream at once.
+    * @param log the test paths view (of this test bench).
+    */
+    private void runTestBench(TestBench testbench, int batchsize, Consumer<String> log) {
+        String stateID = "S0";
+        String transitionID = "T0";
+        String transitionstateID = "";
+        boolean statefailed = false;
+        boolean pathfailed = false;
+        long cycletime = ModelFacade.getInstance().getCycleTime();
+        testbench.setSettleMode(settlereads, cycletime * ModelFacade.getInstance().getCycleTimeScalingFactor());
+        testbench.setSamplingMode(timersampling);
+        
+        // Capture the start and end times for measurement.
+        LocalDateTime now = LocalDateTime.now();
+        DateTimeFormatter formatterModel = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+        String formattedTime;
+        
+        // With prefix sharing, the generated cycles are tested in a test plan: a cycle continues
+        // where it leaves the prefix shared with the cycles tested before it.
+        boolean startstatetested = false;
+        try {
+            while (!pathfailed && !testfailed && !stoprequested) {
+                List<List<String>> batch;
+                try {
+                    synchronized (testcyles) {
+                        batch = testcyles.nextBatch(batchsize);
+                    }
+                } catch (RuntimeException e) {
+                    // A failure of the cycle generation, rethrown by the stream.
+                    log.accept("Cycle generation failed: " + e.getMessage());
+                    testbench.setFailure("cycle generation failed: " + e.getMessage());
+                    testfailed = true;
+                    break;
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                TestPlan testplan = new TestPlan(batch, (planTransitionID, planStateID) -> getStepTime(planTransitionID, planStateID));
+                for (TestPlan.Step step : testplan.getSteps()) {
+                    if (pathfailed || testfailed || stoprequested) {
                         break;
                     }
+                    List<String> path = step.getCycle();
                     final String pathString = "test for path: " + path.toString();
-                    updateViewTestPaths("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
-                    updateViewTestPaths(pathString);
-                    updateViewTestPaths("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
-                    for (int i = 0; i <= path.size() - 1; i = i + 2) {
+                    log.accept("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
+                    log.accept(pathString);
+                    log.accept("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
+                    for (int i = step.getStart(); i <= path.size() - 1; i = i + 2) {
                         if (pathfailed) {
                             break;
                         }
@@ -2334,56 +2803,132 @@ public class TestController {
                                 transitionstateID = path.get(i - 1);
                             }
                         }
-                        if (stateID.equals("S0")) {
+                        if (i == 0 && startstatetested && step.getRoute().size() == 1) {
+                            // The previous path ended in the tested start state.
+                            log.accept("-Start state tested at the end of the previous path.");
+                            statefailed = true;
+                        } else if (i == step.getStart() && (i > 0 || step.getRoute().size() > 1)) {
+                            // The prefix of the path has been tested with the previous paths.
+                            if (step.getRoute().size() == 1) {
+                                log.accept("-Prefix tested with the previous paths, continuing in stateID " + stateID);
+                            } else {
+                                log.accept("-Prefix tested with the previous paths, reaching stateID " + stateID + " over: " + step.getRoute().toString());
+                            }
+                            statefailed = reachState(testbench, step.getRoute(), formatterModel, log);
+                        } else if (stateID.equals("S0")) {
                             now = LocalDateTime.now();
                             formattedTime = now.format(formatterModel);
-                            updateViewTestPaths("-Start Time for reading and comparing outputs : " + formattedTime);
-                            statefailed = ModelFacade.getInstance().executeStateTest(ModelFacade.getInstance().getStateByID(stateID), false);
+                            log.accept("-Start Time for reading and comparing outputs : " + formattedTime);
+                            statefailed = testbench.executeStateTest(ModelFacade.getInstance().getStateByID(stateID), false, cycletime);
                             now = LocalDateTime.now();
                             formattedTime = now.format(formatterModel);
-                            updateViewTestPaths("-End Time for reading and comparing outputs : " + formattedTime);
+                            log.accept("-End Time for reading and comparing outputs : " + formattedTime);
                         } else {
                             now = LocalDateTime.now();
                             formattedTime = now.format(formatterModel);
-                            updateViewTestPaths("-Start Time for reading and comparing outputs : " + formattedTime);
-                            statefailed = ModelFacade.getInstance().executeStateTest(ModelFacade.getInstance().getStateByID(stateID), ModelFacade.getInstance().getTransitionByID(transitionstateID).getAfterTimeCondition());
+                            log.accept("-Start Time for reading and comparing outputs : " + formattedTime);
+                            statefailed = testbench.executeStateTest(ModelFacade.getInstance().getStateByID(stateID), ModelFacade.getInstance().getTransitionByID(transitionstateID).getAfterTimeCondition(), cycletime);
                             now = LocalDateTime.now();
                             formattedTime = now.format(formatterModel);
-                            updateViewTestPaths("-End Time for reading and comparing outputs : " + formattedTime);
+                            log.accept("-End Time for reading and comparing outputs : " + formattedTime);
+                        }
+                        if (settlereads > 0) {
+                            double settlelatency = testbench.getSettleLatency();
+                            log.accept(settlelatency < 0 ? "-Outputs not settled within cycletime * ScalingFactor" : "-Outputs settled after : " + settlelatency + " ms");
+                        }
+                        if (timersampling && testbench.getSwitchingTime() >= 0) {
+                            log.accept("-Timer condition switched after : " + testbench.getSwitchingTime() + " ms");
+                        }
+                        if (Thread.currentThread().isInterrupted()) {
+                            // The run has been cancelled during the state test (stop requested, or a path
+                            // failed on another test bench): the outputs read are not a result.
+                            log.accept("Test for this path cancelled at stateID: " + stateID);
+                            pathfailed = true;
+                            break;
                         }
                         if (!statefailed) {
                             final String testFailedString = "Test for this path failed at stateID: " + stateID;
-                            updateViewTestPaths(testFailedString);
+                            log.accept(testFailedString);
+                            testbench.setFailure("test for path " + path.toString() + " failed at stateID: " + stateID);
                             pathfailed = true;
+                            testfailed = true;
                             break;
                         }
-                        if (stoprequested) {
+                        if (stoprequested || testfailed) {
                             break;
                         }
                         if (i < path.size() - 1) {
                             now = LocalDateTime.now();
                             formattedTime = now.format(formatterModel);
-                            updateViewTestPaths("-Start Time for writing inputs : " + formattedTime);
-                            ModelFacade.getInstance().executeTransitionTest(ModelFacade.getInstance().getTransitionByID(transitionID));
-                            now = LocalDateTime.now();
-                            formattedTime = now.format(formatterModel);
-                            updateViewTestPaths("-End Time for writing inputs : " + formattedTime);
-                            updateViewTestPaths("-Start wait cycletime * ScalingFactor : " + formattedTime);
-                            waitForTime(ModelFacade.getInstance().getCycleTime(), ModelFacade.getInstance().getCycleTimeScalingFactor());
+                            log.accept("-Start Time for writing inputs : " + formattedTime);
+                            if (!executePathTransition(testbench, transitionID, formatterModel, log)) {
+                                // The end state failed after a combination of the combinatorial transition.
+                                stateID = path.get(i + 2);
+                                if (Thread.currentThread().isInterrupted()) {
+                                    log.accept("Test for this path cancelled at stateID: " + stateID);
+                                    pathfailed = true;
+                                    break;
+                                }
+                                final String testFailedString = "Test for this path failed at stateID: " + stateID;
+                                log.accept(testFailedString);
+                                testbench.setFailure("test for path " + path.toString() + " failed at stateID: " + stateID);
+                                pathfailed = true;
+                                testfailed = true;
+                                break;
+                            }
                             now = LocalDateTime.now();
                             formattedTime = now.format(formatterModel);
-                            updateViewTestPaths("-End wait cycletime * ScalingFactor : " + formattedTime);
+                            log.accept("-End Time for writing inputs : " + formattedTime);
+                            // In settle mode the test of the next state waits for its outputs.
+                            if (settlereads == 0) {
+                                log.accept("-Start wait cycletime * ScalingFactor : " + formattedTime);
+                                waitForTime(ModelFacade.getInstance().getCycleTime(), ModelFacade.getInstance().getCycleTimeScalingFactor());
+                                now = LocalDateTime.now();
+                                formattedTime = now.format(formatterModel);
+                                log.accept("-End wait cycletime * ScalingFactor : " + formattedTime);
+                            }
                         }
                     }
-                    if (!pathfailed) {
+                    if (!pathfailed && !stoprequested && !testfailed) {
                         final String testPassedString = "Test for this path passed:";
-                        updateViewTestPaths(testPassedString);
+                        log.accept(testPassedString);
+                        testbench.addPathPassed();
+                        startstatetested = prefixsharing && !stoprequested;
                     }
-                    updateViewTestPaths("-------------------------------------------------------------");
+                    log.accept("-------------------------------------------------------------");
                 }
-                ModelFacade.getInstance().DisconnectFromPlc();
             }
-        }).start();
+            if (settlereads > 0) {
+                log.accept("Maximum settle latency : " + testbench.getMaxSettleLatency() + " ms");
+            }
+        } catch (RuntimeException e) {
+            log.accept("Test bench error: " + e);
+            testbench.setFailure("test bench error: " + e);
+            testfailed = true;
+        }
+    }
+
+    /**
+    * Reports the merged result of a test run on several test benches.
+    *
+    * @param testbenches the test benches of the run.
+    * @param elapsedtime the duration of the run in milliseconds.
+    */
+    private void reportTestBenches(List<TestBench> testbenches, long elapsedtime) {
+        int pathspassed = 0;
+        updateViewTestPaths("Test report of " + testbenches.size() + " test benches:");
+        for (int i = 0; i < testbenches.size(); i++) {
+            TestBench testbench = testbenches.get(i);
+            pathspassed = pathspassed + testbench.getPathsPassed();
+            String result = "[" + (i + 1) + "] " + testbench.getPlcTarget() + " : " + testbench.getPathsPassed() + " paths passed";
+            if (testbench.getFailure() != null) {
+                result = result + ", " + testbench.getFailure();
+            }
+            updateViewTestPaths(result + ".");
+        }
+        String status = testfailed ? "Test failed" : stoprequested ? "Test stopped" : "Test passed";
+        updateViewTestPaths(status + ": " + pathspassed + " paths passed in " + (elapsedtime / 1000.0) + " s.");
+        updateViewTestPaths("-------------------------------------------------------------");
     }
 
     /**
@@ -0,0 +1,145 @@
+// Package
+package combat_plc_tester.controller;
+
+// Imports
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class: TestScope
+ *
+ * Purpose: Runs the tasks of a test run (e.g. one task per test bench) on an executor,
+ * and makes sure none of them outlives the run:
+ *
+ * - `fork()` starts a task of the run.
+ * - `join()` waits until all tasks of the run have finished.
+ * - `cancel()` interrupts all tasks of the run (stop requested, or a task failed), so
+ *   waiting tasks (e.g. on a timer condition) stop promptly.
+ * - `close()` cancels the tasks still running and waits until they have finished, so the
+ *   PLC connections can be closed safely afterwards.
+ *
+ * The tasks run on virtual threads where the Java platform supports them (one cheap
+ * thread per test bench, so many test runs can share one JVM), otherwise on a cached
+ * pool of daemon platform threads.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class TestScope implements AutoCloseable {
+
+    private static final ExecutorService TESTEXECUTOR = createTestExecutor(); // Runs the tasks of all test runs.
+
+    private final List<Thread> runners = new ArrayList<>();      // Threads running a task of the run.
+    private int runningtasks;                                    // Number of forked tasks not finished yet.
+    private boolean cancelled;                                   // Set once the run is cancelled.
+
+    /**
+     * Creates the executor of the test tasks: a virtual thread per task if the Java platform
+     * supports it (looked up at runtime, so the application still runs on older platforms
+     * or without preview features), otherwise a cached pool of daemon threads.
+     *
+     * @return ExecutorService - The executor of the test tasks.
+     */
+    private static ExecutorService createTestExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger threadnumber = new AtomicInteger();
+            ThreadFactory threadfactory = runnable -> {
+                Thread thread = new Thread(runnable, "TestRun-" + threadnumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadfactory);
+        }
+    }
+
+    /**
+     * Starts a task of the run. A task forked after the run has been cancelled is not started.
+     *
+     * @param task Runnable - The task.
+     */
+    public synchronized void fork(Runnable task) {
+        if (cancelled) {
+            return;
+        }
+        runningtasks++;
+        TESTEXECUTOR.execute(() -> {
+            Thread runner = Thread.currentThread();
+            synchronized (this) {
+                if (cancelled) {
+                    finished(runner);
+                    return;
+                }
+                runners.add(runner);
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    finished(runner);
+                }
+                // A cancellation must not interrupt the next task of a pooled thread.
+                Thread.interrupted();
+            }
+        });
+    }
+
+    private void finished(Thread runner) {
+        runners.remove(runner);
+        runningtasks--;
+        notifyAll();
+    }
+
+    /**
+     * Waits until all tasks of the run have finished (or have been cancelled before they started).
+     *
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public synchronized void join() throws InterruptedException {
+        while (runningtasks > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * Interrupts all tasks of the run. Tasks forked afterwards are not started.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        for (Thread runner : runners) {
+            runner.interrupt();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the tasks still running and waits until they have finished.
+     */
+    @Override
+    public void close() {
+        cancel();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+// Package
+package combat_plc_tester.model;
+
+// Imports
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * Class: IndexedList
+ *
+ * Purpose: A list of model elements with an index of the elements by their ID, so an
+ * element is found by its ID in constant time (e.g. the states and transitions of a path
+ * during a test run). The index is updated by every change of the list, also by the
+ * changes the commands and views make through the list (add, delete, undo, redo).
+ *
+ * If several elements have the same ID, the index returns the first one, like a search
+ * of the list. The other elements with the ID are kept in list order next to the index, so
+ * removing an element never searches the list; only adding an element with an ID that is
+ * already in the list does.
+ *
+ * Notes: - The IDs of the elements must not change while they are in the list.
+ * - The list is stored as an ArrayList (see `writeReplace`), so the model files do not
+ * depend on this class; `ModelFacade` indexes the lists again when a model is loaded.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class IndexedList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<E> elements = new ArrayList<>();        // The elements.
+    private final transient Map<String, E> index = new HashMap<>();      // First element with an ID, by ID.
+    private final transient Map<String, List<E>> duplicates = new HashMap<>(); // The other elements with an ID, in list order, by ID.
+    private final transient Function<E, String> IDfunction;              // Returns the ID of an element.
+
+    public IndexedList(Function<E, String> IDfunction) {
+        this.IDfunction = IDfunction;
+    }
+
+    public IndexedList(Function<E, String> IDfunction, Collection<? extends E> elements) {
+        this(IDfunction);
+        addAll(elements);
+    }
+
+    /**
+     * Returns the element with an ID.
+     *
+     * @param ID String - The ID.
+     * @return E - The first element with the ID, or null if there is none.
+     */
+    public E getByID(String ID) {
+        return index.get(ID);
+    }
+
+    @Override
+    public E get(int position) {
+        return elements.get(position);
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    public E set(int position, E element) {
+        E replaced = elements.set(position, element);
+        unindex(replaced);
+        index(element, position);
+        return replaced;
+    }
+
+    @Override
+    public void add(int position, E element) {
+        elements.add(position, element);
+        modCount++;
+        index(element, position);
+    }
+
+    @Override
+    public E remove(int position) {
+        E removed = elements.remove(position);
+        modCount++;
+        unindex(removed);
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        elements.clear();
+        index.clear();
+        duplicates.clear();
+        modCount++;
+    }
+
+    // Indexes an element inserted at a position. If the ID is already in the list, the
+    // elements with the ID before the position give its rank among them.
+    private void index(E element, int position) {
+        String ID = IDfunction.apply(element);
+        E first = index.putIfAbsent(ID, element);
+        if (first == null) {
+            return;
+        }
+        int rank = 0;
+        for (int i = 0; i < position; i++) {
+            if (IDfunction.apply(elements.get(i)).equals(ID)) {
+                rank++;
+            }
+        }
+        List<E> others = duplicates.computeIfAbsent(ID, key -> new ArrayList<>(1));
+        if (rank == 0) {
+            index.put(ID, element);
+            others.add(0, first);
+        } else {
+            others.add(rank - 1, element);
+        }
+    }
+
+    // Removes an element from the index, the next element with the same ID (if any) takes its place.
+    private void unindex(E element) {
+        String ID = IDfunction.apply(element);
+        List<E> others = duplicates.get(ID);
+        if (index.get(ID) == element) {
+            if (others == null) {
+                index.remove(ID);
+                return;
+            }
+            index.put(ID, others.remove(0));
+        } else if (others == null || !removeElement(others, element)) {
+            return;
+        }
+        if (others.isEmpty()) {
+            duplicates.remove(ID);
+        }
+    }
+
+    // Removes an element (the same object) from a list of elements with the same ID.
+    private static <E> boolean removeElement(List<E> others, E element) {
+        for (int i = 0; i < others.size(); i++) {
+            if (others.get(i) == element) {
+                others.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The list is stored as a plain list of its elements.
+    private Object writeReplace() {
+        return new ArrayList<>(elements);
+    }
+}
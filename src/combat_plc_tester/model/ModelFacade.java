@@ -3,18 +3,22 @@ package combat_plc_tester.model;
 
 // Imports
 import Moka7.S7Client;
-import combat_plc_tester.model.moore.SequentialTransition;
 import combat_plc_tester.model.moore.CycleGenerator;
+import combat_plc_tester.model.moore.CycleStream;
 import combat_plc_tester.model.moore.CombinatorialTransition;
 import combat_plc_tester.model.moore.Transition;
 import combat_plc_tester.model.moore.State;
+import combat_plc_tester.model.moore.StatePlcTest;
 import combat_plc_tester.model.moore.StateTest;
+import combat_plc_tester.model.moore.TransitionPlcTest;
 import combat_plc_tester.model.moore.TransitionTest;
 import combat_plc_tester.model.moore.GraphElement;
 import combat_plc_tester.controller.StateTestObserver;
 import combat_plc_tester.controller.TransitionTestObserver;
 import combat_plc_tester.model.IO.Input;
 import combat_plc_tester.model.IO.Output;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +37,8 @@ import java.util.Set;
  * 
  * Notes: - This class implements the Serializable interface to enable the
  * storage of fields and objects as a bytestream.
+ *        - The states, transitions, inputs and outputs are kept in an `IndexedList`,
+ * so the lookups by ID do not search the lists.
  * 
  * @author Seniow Andy
  * @version 1.0
@@ -103,13 +109,27 @@ public class ModelFacade implements Serializable {
      * The TransitionTest determines the method of writing inputs to the PLC.
      */
     private transient TransitionTest transitiontest;
+    /**
+     * Additional PLC targets the model is tested on, concurrently with the PLC
+     * of the properties above (see `createTestBenches`).
+     */
+    private List<PlcTarget> plctargetList;
+    /**
+     * The states, transitions, inputs and outputs indexed by their ID: the same lists as
+     * above, which keep their declared type so the model files are stored as before.
+     */
+    private transient IndexedList<GraphElement> stateindex;
+    private transient IndexedList<GraphElement> transitionindex;
+    private transient IndexedList<Input> inputindex;
+    private transient IndexedList<Output> outputindex;
 
     private ModelFacade() {
-        stategraphelementList = new ArrayList<>();
-        transitiongraphelementList = new ArrayList<>();
+        setStateGraphElementList(new ArrayList<>());
+        setTransitionGraphElementList(new ArrayList<>());
         labelgraphelementList = new ArrayList<>();
-        inputList = new ArrayList<>();
-        outputList = new ArrayList<>();
+        setInputList(new ArrayList<>());
+        setOutputList(new ArrayList<>());
+        plctargetList = new ArrayList<>();
         
         // Initialize the PLC properties.
         IPAddress = "192.168.0.1";
@@ -121,6 +141,22 @@ public class ModelFacade implements Serializable {
         databuildingblockoutputs = 2;
     }
 
+    /**
+     * Indexes the lists of a loaded model (they are stored as plain lists).
+     */
+    private void readObject(ObjectInputStream objectinputstream) throws IOException, ClassNotFoundException {
+        objectinputstream.defaultReadObject();
+        setStateGraphElementList(stategraphelementList);
+        setTransitionGraphElementList(transitiongraphelementList);
+        setInputList(inputList);
+        setOutputList(outputList);
+    }
+
+    // Returns the element with an ID of an indexed list.
+    private static <E> E getByID(IndexedList<E> list, String ID) {
+        return list.getByID(ID);
+    }
+
     public static ModelFacade getInstance() {
         return modelfacade;
     }
@@ -147,6 +183,7 @@ public class ModelFacade implements Serializable {
         outputIDnumbercount = 0;
         inputList.clear();
         outputList.clear();
+        getPlcTargetList().clear();
         statetest = null;
         transitiontest = null;
         State.setObjectcount(0);
@@ -280,7 +317,8 @@ public class ModelFacade implements Serializable {
     }
 
     public void setStateGraphElementList(List<GraphElement> stategraphelementList) {
-        this.stategraphelementList = stategraphelementList;
+        stateindex = new IndexedList<>(graphelement -> ((State) graphelement).getStateID(), stategraphelementList);
+        this.stategraphelementList = stateindex;
     }
 
     public List<GraphElement> getTransitionGraphElementList() {
@@ -288,7 +326,8 @@ public class ModelFacade implements Serializable {
     }
 
     public void setTransitionGraphElementList(List<GraphElement> transitiongraphelementList) {
-        this.transitiongraphelementList = transitiongraphelementList;
+        transitionindex = new IndexedList<>(graphelement -> ((Transition) graphelement).getTransitionID(), transitiongraphelementList);
+        this.transitiongraphelementList = transitionindex;
     }
 
     public List<GraphElement> getLabelGraphElementList() {
@@ -344,7 +383,8 @@ public class ModelFacade implements Serializable {
     }
 
     public void setInputList(List<Input> inputList) {
-        this.inputList = inputList;
+        inputindex = new IndexedList<>(Input::getInputID, inputList);
+        this.inputList = inputindex;
     }
 
     public List<Output> getOutputList() {
@@ -352,7 +392,24 @@ public class ModelFacade implements Serializable {
     }
 
     public void setOutputList(List<Output> outputList) {
-        this.outputList = outputList;
+        outputindex = new IndexedList<>(Output::getOutputID, outputList);
+        this.outputList = outputindex;
+    }
+
+    public List<PlcTarget> getPlcTargetList() {
+        // Models saved before the targets were added have no target list.
+        if (plctargetList == null) {
+            plctargetList = new ArrayList<>();
+        }
+        return plctargetList;
+    }
+
+    public void addPlcTarget(PlcTarget plctarget) {
+        getPlcTargetList().add(plctarget);
+    }
+
+    public void removePlcTarget(PlcTarget plctarget) {
+        getPlcTargetList().remove(plctarget);
     }
 
     public StateTest getStatetest() {
@@ -379,13 +436,7 @@ public class ModelFacade implements Serializable {
      * no such state exists in the list.
      */
     public State getStateByID(String stateID) {
-        for (GraphElement stategraphelement : stategraphelementList) {
-            State state = (State) stategraphelement;
-            if (state.getStateID().equals(stateID)) {
-                return state;
-            }
-        }
-        return null; 
+        return (State) getByID(stateindex, stateID);
     }
 
     /**
@@ -396,20 +447,16 @@ public class ModelFacade implements Serializable {
      * no such transition exists in the list.
      */
     public Transition getTransitionByID(String transitionID) {
-        for (GraphElement transitiongraphelement : transitiongraphelementList) {
-            Transition transition = (Transition) transitiongraphelement;
-            if (transition.getTransitionID().equals(transitionID)) {
-                return transition;
-            } else if (transition instanceof CombinatorialTransition) {
-                CombinatorialTransition combinatorialTransition = (CombinatorialTransition) transitiongraphelement;
-                for (SequentialTransition sequentialTransition : combinatorialTransition.getSequentialTransitionsToTest()) {
-                    if (sequentialTransition.getTransitionID().equals(transitionID)) {
-                        return sequentialTransition;
-                    }
-                }
+        Transition transition = (Transition) getByID(transitionindex, transitionID);
+        int separator = transitionID == null ? -1 : transitionID.indexOf('.');
+        if (transition == null && separator > 0) {
+            // A combination of a combinatorial transition, e.g. "cT4.5".
+            Transition combinatorialTransition = (Transition) getByID(transitionindex, transitionID.substring(0, separator));
+            if (combinatorialTransition instanceof CombinatorialTransition) {
+                return ((CombinatorialTransition) combinatorialTransition).getSequentialTransitionByID(transitionID);
             }
         }
-        return null;
+        return transition;
     }
 
     /**
@@ -420,12 +467,7 @@ public class ModelFacade implements Serializable {
      * no such input exists in the list.
      */
     public Input getInputByID(String inputID) {
-        for (Input input : inputList) {
-            if (input.getInputID().equals(inputID)) {
-                return input;
-            }
-        }
-        return null;
+        return getByID(inputindex, inputID);
     }
 
     /**
@@ -436,12 +478,7 @@ public class ModelFacade implements Serializable {
      * no such output exists in the list.
      */
     public Output getOutputByID(String outputID) {
-        for (Output output : outputList) {
-            if (output.getOutputID().equals(outputID)) {
-                return output;
-            }
-        }
-        return null;
+        return getByID(outputindex, outputID);
     }
 
     /*
@@ -470,6 +507,14 @@ public class ModelFacade implements Serializable {
         return cyclegenerator.generateCycles(stategraphelementList, transitiongraphelementList);
     }
 
+    public CycleStream streamCycles() {
+        return cyclegenerator.streamCycles(stategraphelementList, transitiongraphelementList);
+    }
+
+    public String getCycleCoverageReport() {
+        return cyclegenerator.getCoverageReport();
+    }
+
     public int ConnectToPlc() {
         return this.plcclient.ConnectTo(IPAddress, rack, slot);
     }
@@ -478,6 +523,39 @@ public class ModelFacade implements Serializable {
         this.plcclient.Disconnect();
     }
 
+    /**
+     * Prepares the tests for a test run (after connecting to the PLC), so the
+     * work that only depends on the inputs, the outputs and the connection is
+     * done once instead of for every state or transition.
+     */
+    public void prepareTestRun() {
+        statetest.setDataBuildingBlockNumberOutputs(databuildingblockoutputs);
+        statetest.setOutputList(outputList);
+        statetest.setPlcClient(plcclient);
+        statetest.prepareTestRun();
+        transitiontest.setDataBuildingBlockNumberInputs(databuildingblockinputs);
+        transitiontest.setInputList(inputList);
+        transitiontest.setPlcClient(plcclient);
+        transitiontest.prepareTestRun();
+    }
+
+    /**
+     * Creates the test benches of a test run: the PLC of the properties, with the
+     * client and the (observed) tests of the model, followed by a bench with its own
+     * client and tests for each additional PLC target.
+     *
+     * @return List<TestBench> - The test benches, the first one is the PLC of the properties.
+     */
+    public List<TestBench> createTestBenches() {
+        List<TestBench> testbenches = new ArrayList<>();
+        PlcTarget plctarget = new PlcTarget(IPAddress, rack, slot, databuildingblockinputs, databuildingblockoutputs);
+        testbenches.add(new TestBench(plctarget, plcclient, statetest, transitiontest));
+        for (PlcTarget additionalplctarget : getPlcTargetList()) {
+            testbenches.add(new TestBench(additionalplctarget, new S7Client(), new StatePlcTest(), new TransitionPlcTest()));
+        }
+        return testbenches;
+    }
+
     /**
      * Executes a state test for a given state (reading outputs from the PLC
      * and compares them with the outputs of the state).
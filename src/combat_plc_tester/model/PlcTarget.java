@@ -0,0 +1,64 @@
+// Package
+package combat_plc_tester.model;
+
+// Imports
+import java.io.Serializable;
+
+/**
+ * Class: PlcTarget
+ *
+ * Purpose: The connection properties of a PLC to test the model on: the address of
+ * the CPU and the data building blocks of the inputs and outputs. Identical CPUs, or
+ * several instance data building blocks of the same function block on one CPU, are
+ * different targets of the same model.
+ *
+ * Notes: - This class implements the Serializable interface, the targets are stored
+ * with the model.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class PlcTarget implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String IPAddress;                      // IP address of the PLC.
+    private final short rack;                            // Rack number of the PLC.
+    private final short slot;                            // Slot number of the PLC.
+    private final short databuildingblockinputs;         // Number of the databuilding block used to write the inputs.
+    private final short databuildingblockoutputs;        // Number of the databuilding block used to read the outputs.
+
+    public PlcTarget(String IPAddress, short rack, short slot, short databuildingblockinputs, short databuildingblockoutputs) {
+        this.IPAddress = IPAddress;
+        this.rack = rack;
+        this.slot = slot;
+        this.databuildingblockinputs = databuildingblockinputs;
+        this.databuildingblockoutputs = databuildingblockoutputs;
+    }
+
+    public String getIPAddress() {
+        return IPAddress;
+    }
+
+    public short getRack() {
+        return rack;
+    }
+
+    public short getSlot() {
+        return slot;
+    }
+
+    public short getDataBuildingBlockNumberInputs() {
+        return databuildingblockinputs;
+    }
+
+    public short getDataBuildingBlockNumberOutputs() {
+        return databuildingblockoutputs;
+    }
+
+    @Override
+    public String toString() {
+        return IPAddress + " (rack " + rack + ", slot " + slot + ", DB " + databuildingblockinputs + "/" + databuildingblockoutputs + ")";
+    }
+}
@@ -0,0 +1,169 @@
+// Package
+package combat_plc_tester.model;
+
+// Imports
+import Moka7.S7Client;
+import combat_plc_tester.model.IO.Input;
+import combat_plc_tester.model.IO.Output;
+import combat_plc_tester.model.moore.State;
+import combat_plc_tester.model.moore.StateTest;
+import combat_plc_tester.model.moore.Transition;
+import combat_plc_tester.model.moore.TransitionTest;
+import java.util.List;
+
+/**
+ * Class: TestBench
+ *
+ * Purpose: Runs the tests of a model on one PLC target, with its own connection and
+ * its own state and transition test. Test benches do not share any state during a
+ * test run, so the cycles of a model can be tested on several targets concurrently,
+ * one thread per test bench.
+ *
+ * The result of the test run on the bench (paths passed, failed path) is kept for the
+ * merged report of the run.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class TestBench {
+
+    private final PlcTarget plctarget;               // The PLC target of the bench.
+    private final S7Client plcclient;                // The S7 client connected to the target.
+    private final StateTest statetest;               // Reads and compares the outputs of the target.
+    private final TransitionTest transitiontest;     // Writes the inputs of the target.
+    private volatile int pathspassed;                // Number of paths passed in the test run.
+    private volatile String failure;                 // Failure of the test run, or null.
+    private volatile double maxsettlelatency;        // Largest settle latency of the test run in milliseconds (settle mode).
+
+    public TestBench(PlcTarget plctarget, S7Client plcclient, StateTest statetest, TransitionTest transitiontest) {
+        this.plctarget = plctarget;
+        this.plcclient = plcclient;
+        this.statetest = statetest;
+        this.transitiontest = transitiontest;
+    }
+
+    public PlcTarget getPlcTarget() {
+        return plctarget;
+    }
+
+    public S7Client getPlcClient() {
+        return plcclient;
+    }
+
+    public int connect() {
+        return plcclient.ConnectTo(plctarget.getIPAddress(), plctarget.getRack(), plctarget.getSlot());
+    }
+
+    public void disconnect() {
+        plcclient.Disconnect();
+    }
+
+    /**
+     * Prepares the tests of the bench for a test run (after connecting to the PLC),
+     * see `ModelFacade.prepareTestRun`.
+     *
+     * @param inputList List<Input> - The inputs of the model.
+     * @param outputList List<Output> - The outputs of the model.
+     */
+    public void prepareTestRun(List<Input> inputList, List<Output> outputList) {
+        pathspassed = 0;
+        failure = null;
+        maxsettlelatency = 0;
+        statetest.setDataBuildingBlockNumberOutputs(plctarget.getDataBuildingBlockNumberOutputs());
+        statetest.setOutputList(outputList);
+        statetest.setPlcClient(plcclient);
+        statetest.prepareTestRun();
+        transitiontest.setDataBuildingBlockNumberInputs(plctarget.getDataBuildingBlockNumberInputs());
+        transitiontest.setInputList(inputList);
+        transitiontest.setPlcClient(plcclient);
+        transitiontest.prepareTestRun();
+    }
+
+    /**
+     * Executes a state test on the target, see `ModelFacade.executeStateTest`.
+     *
+     * @param state The state to be tested. Must not be {@code null}.
+     * @param aftertimecondition Whether to apply the "after time condition" during the test.
+     * @param cycletime The cycle time of the PLC in milliseconds.
+     * @return {@code true} if the state test passes, {@code false} otherwise.
+     */
+    public boolean executeStateTest(State state, boolean aftertimecondition, long cycletime) {
+        statetest.setAftertimecondition(aftertimecondition);
+        statetest.setState(state);
+        statetest.setCycleTime(cycletime);
+        boolean statepassed = statetest.doStateTest();
+        // The next state test follows no write, unless a transition test comes first.
+        statetest.setWriteTime(-1);
+        maxsettlelatency = Math.max(maxsettlelatency, statetest.getSettleLatency());
+        return statepassed;
+    }
+
+    /**
+     * Sets the settle mode of the state tests, see `StateTest.setSettleMode`.
+     *
+     * @param settlereads Number of consecutive matching reads, 0 to turn the settle mode off.
+     * @param settletimeout Maximum time in milliseconds for the outputs to settle.
+     */
+    public void setSettleMode(int settlereads, long settletimeout) {
+        statetest.setSettleMode(settlereads, settletimeout);
+    }
+
+    /**
+     * Returns the time the outputs needed to settle in the last state test in settle mode.
+     *
+     * @return double - The settle latency in milliseconds, -1 if the outputs did not settle.
+     */
+    public double getSettleLatency() {
+        return statetest.getSettleLatency();
+    }
+
+    /**
+     * Sets the sampling mode of the timed state tests, see `StateTest.setSamplingMode`.
+     *
+     * @param samplingmode Whether to sample the timer conditions.
+     */
+    public void setSamplingMode(boolean samplingmode) {
+        statetest.setSamplingMode(samplingmode);
+    }
+
+    /**
+     * Returns the switching time observed by the last timed state test in sampling mode.
+     *
+     * @return double - The time in milliseconds from the start of the timer condition, -1 if not observed.
+     */
+    public double getSwitchingTime() {
+        return statetest.getSwitchingTime();
+    }
+
+    public double getMaxSettleLatency() {
+        return maxsettlelatency;
+    }
+
+    /**
+     * Writes the inputs of a transition to the target, see `ModelFacade.executeTransitionTest`.
+     *
+     * @param transition The transition to use for the test. Must not be {@code null}.
+     */
+    public void executeTransitionTest(Transition transition) {
+        transitiontest.setTransition(transition);
+        transitiontest.doTransitionTest();
+        statetest.setWriteTime(transitiontest.getWriteTime());
+    }
+
+    public int getPathsPassed() {
+        return pathspassed;
+    }
+
+    public void addPathPassed() {
+        pathspassed++;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+}
@@ -5,8 +5,17 @@ package combat_plc_tester.model.moore;
 import combat_plc_tester.model.IO.Input;
 import combat_plc_tester.model.IO.InputBit;
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class: CombinatorialTransition
@@ -22,6 +31,9 @@ import java.util.List;
  * - Using a combinatorial transition for timing purposes is not possible.
  * 
  * Notes: 
+ * - The combinations are enumerated as masks over the bit-type inputs, a 
+ *   sequential transition is only created for a combination that is accessed 
+ *   (e.g. executed by a test).
  * - This class implements the Serializable interface to enable the storage of 
  *   fields and objects as a bytestream.
  * 
@@ -32,16 +44,22 @@ import java.util.List;
 public class CombinatorialTransition extends Transition implements Serializable{
     
     private static final long serialVersionUID = 122L;
+    // Maximum number of bit-type inputs to test all combinations of (2^24 combinations).
+    public static final int MAXBITINPUTS = 24;
+    // Maximum number of nodes of the decision diagram of the transitions to exclude (see `Combinations`).
+    private static final int MAXEXCLUSIONNODES = 1 << 16;
     // List of all inputs.
     private List<Input> allinputs;
-    // List of all bit-type input combinations.
-    private List<List<Input>> allInputBitCombinations;
-    // List of all generated sequential transitions based on all combinatorial possibilities of the bit-type inputs.
-    private List<SequentialTransition> allSequentialTransitions;
-    // List of transitions to test: allSequentialTransitions minus transitions to exclude.
-    private List<SequentialTransition> transitionsToTest;
+    // Combinations of the bit-type inputs to test, created by `updateTransitionToExclude`.
+    private transient volatile Combinations combinations;
     // List of sequential transitions in the model to exclude.
     private List<SequentialTransition> transitionsToExclude;
+    // Strength t of the covering array of the combinations to test, 0 to test all combinations.
+    private int coveringstrength;
+    // IDs of the bit-type inputs to combine, empty to combine all bit-type inputs of the model.
+    private List<String> relevantinputIDs;
+    // Combine the bit-type inputs of the transitions to exclude (if no relevant inputs are set).
+    private boolean inferrelevantinputs;
 
 
     /**
@@ -66,10 +84,8 @@ public class CombinatorialTransition extends Transition implements Serializable{
                       double endX, double endY)
     {
         super(startStateID,endStateID,"cT",startX,startY,ctrlX1,ctrlY1,ctrlX2,ctrlY2,endX,endY);
-        allSequentialTransitions = new ArrayList<>();
-        transitionsToTest = new ArrayList<>();
         transitionsToExclude = new ArrayList<>();
-        allInputBitCombinations = new ArrayList<>(); 
+        relevantinputIDs = new ArrayList<>();
         setAfterTimeCondition(false);               // No timing purpose possible.
     }
    
@@ -102,8 +118,171 @@ public class CombinatorialTransition extends Transition implements Serializable{
         return this.transitionsToExclude;
     }
 
+    /**
+     * Sets the covering array mode of the combinations to test. With a strength t > 0 only
+     * a covering array of the combinations is tested: every combination of values of every
+     * t bit-type inputs occurs at least once, so faults caused by up to t inputs are still
+     * detected (see `CoveringArray`). Takes effect at the next `updateTransitionToExclude`.
+     *
+     * @param coveringstrength The strength t, from 1 to `CoveringArray.MAXSTRENGTH`, or 0 to test all combinations.
+     */
+    public void setCoveringStrength(int coveringstrength) {
+        if (coveringstrength < 0 || coveringstrength > CoveringArray.MAXSTRENGTH) {
+            throw new IllegalArgumentException("Covering strength is valid from 0 to " + CoveringArray.MAXSTRENGTH + ".");
+        }
+        this.coveringstrength = coveringstrength;
+    }
+
+    public int getCoveringStrength() {
+        return coveringstrength;
+    }
+
+    /**
+     * Adds a bit-type input to the relevant inputs. Only the relevant inputs are combined,
+     * the other bit-type inputs of the model keep their initial value in all combinations.
+     *
+     * @param inputID The ID of the bit-type input.
+     */
+    public void addRelevantInput(String inputID) {
+        if (!getRelevantInputs().contains(inputID)) {
+            relevantinputIDs.add(inputID);
+        }
+    }
+
+    public void deleteRelevantInput(String inputID) {
+        getRelevantInputs().remove(inputID);
+    }
+
+    /**
+     * Returns the IDs of the relevant inputs.
+     *
+     * @return List<String> - The IDs of the bit-type inputs to combine, empty to combine all
+     * bit-type inputs of the model (or those of the transitions to exclude, see `setInferRelevantInputs`).
+     */
+    public List<String> getRelevantInputs() {
+        if (relevantinputIDs == null) {
+            // Stored by an earlier version.
+            relevantinputIDs = new ArrayList<>();
+        }
+        return relevantinputIDs;
+    }
+
+    /**
+     * Sets whether the relevant inputs are inferred, if none are set: the bit-type inputs of
+     * the transitions to exclude are combined (the inputs the start state reacts to), the
+     * other bit-type inputs of the model keep their initial value.
+     *
+     * @param inferrelevantinputs Whether to infer the relevant inputs.
+     */
+    public void setInferRelevantInputs(boolean inferrelevantinputs) {
+        this.inferrelevantinputs = inferrelevantinputs;
+    }
+
+    public boolean getInferRelevantInputs() {
+        return inferrelevantinputs;
+    }
+
+    /**
+     * Returns the maximum number of bit-type inputs the combinations can be generated for:
+     * `MAXBITINPUTS` to test all combinations, `CoveringArray.MAXBITS` for a covering array.
+     *
+     * @return int - The maximum number of bit-type inputs.
+     */
+    public int getMaxBitInputs() {
+        return coveringstrength > 0 ? CoveringArray.MAXBITS : MAXBITINPUTS;
+    }
+
+    /**
+     * Returns the sequential transitions to test: all combinations of the bit-type inputs
+     * minus the transitions to exclude, in the order of `getTestMask`.
+     *
+     * Notes: - The list is a view on the combinations, a sequential transition is only
+     * created when it is accessed (and then kept, so it is the same object on every access).
+     *
+     * @return List<SequentialTransition> - The sequential transitions to test (read-only).
+     */
     public List<SequentialTransition> getSequentialTransitionsToTest() {
-        return this.transitionsToTest;
+        Combinations current = combinations;
+        return current == null ? Collections.emptyList() : current;
+    }
+
+    /**
+     * Returns the bit-type inputs of the model the combinations are made of (the relevant
+     * inputs): bit j of a combination mask is the value of input j.
+     *
+     * @return List<Input> - The bit-type inputs, empty before `updateTransitionToExclude`.
+     */
+    public List<Input> getBitInputs() {
+        Combinations current = combinations;
+        return current == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(current.bitinputs));
+    }
+
+    /**
+     * Returns the mask of a combination to test, without creating its sequential transition.
+     * The masks are ascending without transitions to exclude (and in covering array mode),
+     * else in the order of the decision diagram of the transitions to exclude (see `Combinations`).
+     *
+     * @param index int - The index in `getSequentialTransitionsToTest()`.
+     * @return long - The mask of the combination (bit j is the value of bit-type input j).
+     */
+    public long getTestMask(int index) {
+        Combinations current = combinations;
+        if (current == null) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+        }
+        return current.getMask(index);
+    }
+
+    /**
+     * Creates the sequential transition of a combination to test, e.g. to write its inputs
+     * while a test runs the combinatorial transition. Unlike the elements of
+     * `getSequentialTransitionsToTest()` it is not kept, so a test of all combinations does
+     * not hold a sequential transition per combination.
+     *
+     * @param index int - The index in `getSequentialTransitionsToTest()`.
+     * @return SequentialTransition - A new sequential transition of the combination.
+     */
+    public SequentialTransition createSequentialTransitionToTest(int index) {
+        Combinations current = combinations;
+        if (current == null) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+        }
+        return current.createSequentialTransition(current.getMask(index));
+    }
+
+    /**
+     * Returns the ID of the sequential transition of a combination: the ID of this
+     * transition and the mask of the combination, e.g. "cT4.5".
+     *
+     * @param mask long - The mask of the combination.
+     * @return String - The ID of the sequential transition.
+     */
+    public String getSequentialTransitionID(long mask) {
+        return getTransitionID() + "." + mask;
+    }
+
+    /**
+     * Returns the sequential transition to test with a given ID (see `getSequentialTransitionID`).
+     *
+     * @param transitionID String - The ID of the sequential transition.
+     * @return SequentialTransition - The sequential transition, or null if it is not a combination to test.
+     */
+    public SequentialTransition getSequentialTransitionByID(String transitionID) {
+        Combinations current = combinations;
+        String prefix = getTransitionID() + ".";
+        if (current == null || !transitionID.startsWith(prefix)) {
+            return null;
+        }
+        long mask;
+        try {
+            mask = Long.parseLong(transitionID.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!current.isTested(mask)) {
+            return null;
+        }
+        return current.getSequentialTransition(mask);
     }
     
      /**
@@ -115,8 +294,9 @@ public class CombinatorialTransition extends Transition implements Serializable{
     @Override
     public void addInput(Input input) {
         this.getInputs().add(input);
-        if (!allSequentialTransitions.isEmpty()) {
-            for (SequentialTransition sequentialtransition : allSequentialTransitions) {
+        Combinations current = combinations;
+        if (current != null) {
+            for (SequentialTransition sequentialtransition : current.created.values()) {
                 if (!sequentialtransition.getInputs().contains(input)) {
                     sequentialtransition.addInput(input);
                 }
@@ -132,66 +312,33 @@ public class CombinatorialTransition extends Transition implements Serializable{
     @Override
     public void deleteInput(Input input) {
         this.getInputs().remove(input);
-        if (!allSequentialTransitions.isEmpty()) {
-            for (SequentialTransition sequentialtransition : allSequentialTransitions) {
+        Combinations current = combinations;
+        if (current != null) {
+            for (SequentialTransition sequentialtransition : current.created.values()) {
                 sequentialtransition.deleteInput(input);
             }
         }
     }
-
-    // Generates all combinatorial bit-type input combinations.
-    private void generateAllInputBitCombinations() {
-        allInputBitCombinations.clear();
-        List<Input> bitinputs = new ArrayList<>();
-        for (Input input : allinputs) {
-            if (input instanceof InputBit) {
-                bitinputs.add(input);
-            }
-        }
-        int n = bitinputs.size();
-        int combinations = 1 << n;
-
-        for (int i = 0; i < combinations; i++) {
-            List<Input> combination = new ArrayList<>();
-            for (int j = 0; j < n; j++) {
-                boolean bitValue = ((i >> j) & 1) == 1;
-                Input<Boolean> input = new InputBit(bitinputs.get(j));
-                input.setValue(bitValue);
-                combination.add(input);
-            }
-            allInputBitCombinations.add(combination);
-        }
-    }
-    
-    // Generates all sequential transitions based on the combinatorial bit-type combinations.
-    private void generateSequentialTransitions() {
-        for (List<Input> inputList : allInputBitCombinations) {
-            SequentialTransition sequentialTransition = new SequentialTransition(this.getStartStateID(), this.getEndStateID());
-            for (Input input : inputList) {
-                sequentialTransition.addInput(input);
-            }
-            for (Input input : this.getInputs()) {
-                if (!sequentialTransition.getInputs().contains(input)) {
-                    sequentialTransition.addInput(input);
-                }
-            }
-            allSequentialTransitions.add(sequentialTransition);
-        }
-    }
       
     /**
      * Updates the list of transitions to exclude based on the provided inputs.
      *
+     * Notes: - The combinations are not created: they are the masks 0 to 2^n - 1 of
+     * the n bit-type inputs. Only the normalised transitions to exclude (and a decision
+     * diagram counting the masks they leave) are stored, a mask is computed from its index
+     * and its sequential transition is created when it is accessed. No combinations are
+     * generated if the model has more than `getMaxBitInputs()` bit-type inputs.
+     * - In covering array mode (see `setCoveringStrength`) the masks of the covering array
+     * are stored instead.
+     * - Only the relevant bit-type inputs are combined (see `addRelevantInput`), the others
+     * are not part of the combinations and keep their initial value.
+     *
      * @param inputs The list of inputs used to update the transitions to
      * exclude.
      */
     public void updateTransitionToExclude(List<Input> inputs) {
         this.allinputs = inputs;
-        allSequentialTransitions.clear();
-        transitionsToTest.clear();
-        generateAllInputBitCombinations();
-        generateSequentialTransitions();
-        filterTransitions();
+        combinations = createCombinations();
     }
 
     /**
@@ -200,58 +347,414 @@ public class CombinatorialTransition extends Transition implements Serializable{
      *
      * Notes: - Ensures that only transitions not explicitly excluded are included 
      * in the testing process, based on the equality of their inputs.
+     * - The transitions to exclude are normalised into hash keys once, so the
+     * filter is linear in the number of combinations.
      */
     public void filterTransitions() {
-        boolean exclude = false;
-        for (SequentialTransition sequentialtransition : allSequentialTransitions) {
-            exclude = false;
+        if (allinputs != null) {
+            combinations = createCombinations();
+        }
+    }
+
+    /**
+     * Returns the number of bit-type inputs of a model input list that are combined (the
+     * relevant inputs), without creating the combinations.
+     *
+     * @param inputs The inputs of the model.
+     * @return int - The number of bit-type inputs to combine, see `getMaxBitInputs()`.
+     */
+    public int getBitInputCount(List<Input> inputs) {
+        return selectBitInputs(inputs, new HashMap<>()).size();
+    }
+
+    // Selects the relevant bit-type inputs to combine, the initial values of the others are put in pinnedvalues.
+    private List<Input> selectBitInputs(List<Input> inputs, Map<String, Boolean> pinnedvalues) {
+        Set<String> relevantIDs = new HashSet<>(getRelevantInputs());
+        if (relevantIDs.isEmpty() && inferrelevantinputs) {
             for (SequentialTransition sequentialtransitionToExclude : transitionsToExclude) {
-                // If the inputs of the transitions are equal, exclude the sequential transition.
-                // It is important to maintain the order of the parameters, as the sequential 
-                // transition only contains inputs configured by the model.
-                // All inputs in the input list must be present in the generated sequential transition.
-                if (areInputsEqual(sequentialtransition.getInputs(), sequentialtransitionToExclude.getInputs())) {
-                    exclude = true;
-                    break;
+                for (Input input : sequentialtransitionToExclude.getInputs()) {
+                    if (input instanceof InputBit) {
+                        relevantIDs.add(input.getInputID());
+                    }
                 }
             }
-            // If not excluded, add the sequential transition to the list of transitions to test.
-            if (!exclude) {
-                transitionsToTest.add(sequentialtransition);
+        }
+        List<Input> bitinputs = new ArrayList<>();
+        for (Input input : inputs) {
+            if (input instanceof InputBit) {
+                if (relevantIDs.isEmpty() || relevantIDs.contains(input.getInputID())) {
+                    bitinputs.add(input);
+                } else {
+                    pinnedvalues.put(input.getInputID(), ((InputBit) input).getInitialValue());
+                }
             }
         }
+        return bitinputs;
+    }
+
+    // Creates the combinations to test of the relevant bit-type inputs: all but the excluded ones, or a covering array of them.
+    private Combinations createCombinations() {
+        Map<String, Boolean> pinnedvalues = new HashMap<>();
+        List<Input> bitinputs = selectBitInputs(allinputs, pinnedvalues);
+        Combinations created = new Combinations(bitinputs.toArray(new Input[0]));
+        if (bitinputs.size() > getMaxBitInputs()) {
+            return created;
+        }
+        if (coveringstrength > 0 && coveringstrength < bitinputs.size()) {
+            created.cover(transitionsToExclude, pinnedvalues, coveringstrength);
+        } else {
+            created.filter(transitionsToExclude, pinnedvalues);
+        }
+        return created;
     }
- 
+
     /**
-     * Compares two lists of inputs to determine if they are logically equal.
+     * Normalises the transitions to exclude into keys of the combinations they exclude.
+     *
+     * Purpose: An excluded transition excludes every combination in which each of its
+     * `InputBit` objects has the same value (matched by `InputID`), whatever the values
+     * of the bit-type inputs it does not configure. It is normalised into a care mask
+     * (the bits it configures) and a value key (their values): a combination is excluded
+     * if `mask & care` is one of the value keys of the care mask. The value keys are
+     * grouped in a hash set per care mask, so a combination is checked with one lookup
+     * per distinct care mask (usually one), independent of the number of exclusions.
+     *
+     * Notes: - An excluded transition with an `InputBit` that is not a bit-type input of
+     * the model, or with two different values for the same input, excludes nothing.
+     * - A bit-type input that is not combined has its initial value in every combination:
+     * an excluded transition with another value for it excludes nothing.
      *
-     * Purpose: This method iterates through two lists of inputs and checks if
-     * every `InputBit` in the first list (`inputs2`) has a matching `InputBit`
-     * in the second list (`inputs1`). A match is defined as having the same
-     * `InputID` and `value`.
-     * 
-     * @param inputs1 The first list of inputs to compare.
-     * @param inputs2 The second list of inputs to compare.
-     * @return true if all `InputBit` objects in `inputs2` have a corresponding
-     * match in `inputs1`, otherwise false.
+     * @param bitinputs The bit-type inputs of the combinations.
+     * @param transitionsToExclude The transitions to exclude.
+     * @param pinnedvalues The initial values of the bit-type inputs not combined, by ID.
+     * @return Map<Long, Set<Long>> - The value keys per care mask.
      */
-    private boolean areInputsEqual(List<Input> inputs1, List<Input> inputs2) {
-        for (Input input1 : inputs2) {
-            if (input1 instanceof InputBit) {
-                boolean isequal = false;
-                for (Input input2 : inputs1) {
-                    if (input2 instanceof InputBit
-                            && input1.getInputID().equals(input2.getInputID())
-                            && input1.getValue() == input2.getValue()) {
-                        isequal = true;
+    private static Map<Long, Set<Long>> normalizeExclusions(Input[] bitinputs, List<SequentialTransition> transitionsToExclude, Map<String, Boolean> pinnedvalues) {
+        Map<String, Integer> bitindexes = new HashMap<>();
+        for (int j = 0; j < bitinputs.length; j++) {
+            bitindexes.putIfAbsent(bitinputs[j].getInputID(), j);
+        }
+        Map<Long, Set<Long>> excludedvalues = new HashMap<>();
+        for (SequentialTransition sequentialtransitionToExclude : transitionsToExclude) {
+            long care = 0;
+            long value = 0;
+            boolean matchable = true;
+            for (Input input : sequentialtransitionToExclude.getInputs()) {
+                if (input instanceof InputBit) {
+                    Boolean pinnedvalue = pinnedvalues.get(input.getInputID());
+                    if (pinnedvalue != null) {
+                        if (!pinnedvalue.equals(input.getValue())) {
+                            matchable = false;
+                            break;
+                        }
+                        continue;
+                    }
+                    Integer j = bitindexes.get(input.getInputID());
+                    long bit = j == null ? 0 : 1L << j;
+                    long bitvalue = (Boolean) input.getValue() ? bit : 0;
+                    if (j == null || ((care & bit) != 0 && (value & bit) != bitvalue)) {
+                        matchable = false;
                         break;
                     }
+                    care |= bit;
+                    value |= bitvalue;
                 }
-                if (!isequal) {
+            }
+            if (matchable) {
+                excludedvalues.computeIfAbsent(care, key -> new HashSet<>()).add(value);
+            }
+        }
+        return excludedvalues;
+    }
+
+    /**
+     * Class: Combinations
+     *
+     * Purpose: The combinations of the bit-type inputs to test, as a read-only list of
+     * sequential transitions. Nothing is stored per combination: a mask is tested if it
+     * matches none of the normalised transitions to exclude (cubes: care mask and value,
+     * see `normalizeExclusions`), and the mask of an index is computed on demand from a
+     * decision diagram of the cubes (see `ExclusionNode`), in time linear in the number of
+     * bit-type inputs. Without transitions to exclude the mask of index i is i.
+     * In covering array mode the masks to test are stored instead (ascending).
+     * A sequential transition is created the first time its combination is accessed.
+     */
+    private class Combinations extends AbstractList<SequentialTransition> implements RandomAccess {
+
+        private final Input[] bitinputs;                                  // Bit-type inputs, bit j of a mask is input j.
+        private final long masks;                                         // Number of masks (2^n).
+        private long[] caremasks = new long[0];                           // Care masks of the transitions to exclude.
+        private List<Set<Long>> valuekeys = new ArrayList<>();            // Excluded values per care mask.
+        private ExclusionNode root;                                       // Decision diagram of the transitions to exclude, null if all are excluded.
+        private long freebits;                                            // Bits no transition to exclude constrains.
+        private long[] testmasks;                                         // Masks to test in covering array mode (ascending), or null.
+        private int size;                                                 // Number of combinations to test.
+        private final Map<Long, SequentialTransition> created = new ConcurrentHashMap<>(); // Sequential transitions created so far.
+
+        private Combinations(Input[] bitinputs) {
+            this.bitinputs = bitinputs;
+            this.masks = bitinputs.length <= MAXBITINPUTS ? 1L << bitinputs.length : 0;
+        }
+
+        // Normalises the transitions to exclude (see `normalizeExclusions`) and counts the masks to test.
+        private void filter(List<SequentialTransition> transitionsToExclude, Map<String, Boolean> pinnedvalues) {
+            size = 0;
+            if (masks == 0) {
+                return;
+            }
+            Map<Long, Set<Long>> excludedvalues = normalizeExclusions(bitinputs, transitionsToExclude, pinnedvalues);
+            caremasks = new long[excludedvalues.size()];
+            valuekeys = new ArrayList<>();
+            List<long[]> cubes = new ArrayList<>();
+            for (Map.Entry<Long, Set<Long>> entry : excludedvalues.entrySet()) {
+                caremasks[valuekeys.size()] = entry.getKey();
+                valuekeys.add(entry.getValue());
+                for (Long value : entry.getValue()) {
+                    cubes.add(new long[] {entry.getKey(), value});
+                }
+            }
+            cubes = removeSubsumed(cubes);
+            long carebits = 0;
+            for (long[] cube : cubes) {
+                carebits |= cube[0];
+            }
+            freebits = (masks - 1) & ~carebits;
+            try {
+                root = ExclusionNode.build(cubes, new HashMap<>());
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException("CombinatorialTransition with ID " + getTransitionID() + ": " + e.getMessage(), e);
+            }
+            size = root == null ? 0 : (int) (root.count << Long.bitCount(freebits));
+        }
+
+        // Generates the covering array of the combinations, avoiding the masks matching a transition to exclude.
+        private void cover(List<SequentialTransition> transitionsToExclude, Map<String, Boolean> pinnedvalues, int strength) {
+            Map<Long, Set<Long>> excludedvalues = normalizeExclusions(bitinputs, transitionsToExclude, pinnedvalues);
+            List<Long> cares = new ArrayList<>();
+            List<Long> values = new ArrayList<>();
+            for (Map.Entry<Long, Set<Long>> entry : excludedvalues.entrySet()) {
+                for (Long value : entry.getValue()) {
+                    cares.add(entry.getKey());
+                    values.add(value);
+                }
+            }
+            long[] excludedcares = new long[cares.size()];
+            long[] excludedvaluekeys = new long[values.size()];
+            for (int e = 0; e < excludedcares.length; e++) {
+                excludedcares[e] = cares.get(e);
+                excludedvaluekeys[e] = values.get(e);
+            }
+            String[] inputnames = new String[bitinputs.length];
+            for (int j = 0; j < bitinputs.length; j++) {
+                inputnames[j] = bitinputs[j].getInputID();
+            }
+            try {
+                testmasks = CoveringArray.generate(bitinputs.length, strength, excludedcares, excludedvaluekeys, inputnames);
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException("CombinatorialTransition with ID " + getTransitionID() + ": " + e.getMessage(), e);
+            }
+            size = testmasks.length;
+        }
+
+        private boolean isTested(long mask) {
+            if (testmasks != null) {
+                return Arrays.binarySearch(testmasks, mask) >= 0;
+            }
+            if (mask < 0 || mask >= masks || root == null) {
+                return false;
+            }
+            for (int c = 0; c < caremasks.length; c++) {
+                if (valuekeys.get(c).contains(mask & caremasks[c])) {
                     return false;
                 }
             }
+            return true;
+        }
+
+        // Computes the mask of an index: the bits of the decision diagram, then the free bits.
+        private long getMask(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (testmasks != null) {
+                return testmasks[index];
+            }
+            long mask = deposit(index / root.count, freebits);
+            long rest = index % root.count;
+            for (ExclusionNode node = root; node.children != null; ) {
+                int value = rest < node.counts[0] ? 0 : 1;
+                rest -= value == 0 ? 0 : node.counts[0];
+                ExclusionNode child = node.children[value];
+                mask |= (long) value << node.bit;
+                mask |= deposit(rest / child.count, node.freebits[value]);
+                rest %= child.count;
+                node = child;
+            }
+            return mask;
+        }
+
+        private SequentialTransition getSequentialTransition(long mask) {
+            return created.computeIfAbsent(mask, this::createSequentialTransition);
+        }
+
+        // Creates the sequential transition of a combination with the own inputs of the combinatorial transition.
+        private SequentialTransition createSequentialTransition(long mask) {
+            SequentialTransition sequentialTransition = new SequentialTransition(getSequentialTransitionID(mask), getStartStateID(), getEndStateID());
+            for (int j = 0; j < bitinputs.length; j++) {
+                Input<Boolean> input = new InputBit(bitinputs[j]);
+                input.setValue(((mask >> j) & 1) == 1);
+                sequentialTransition.addInput(input);
+            }
+            for (Input input : CombinatorialTransition.this.getInputs()) {
+                if (!sequentialTransition.getInputs().contains(input)) {
+                    sequentialTransition.addInput(input);
+                }
+            }
+            return sequentialTransition;
+        }
+
+        @Override
+        public SequentialTransition get(int index) {
+            return getSequentialTransition(getMask(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // Removes the cubes matched wherever another cube matches (its care and value contain the other one).
+    private static List<long[]> removeSubsumed(List<long[]> cubes) {
+        List<long[]> kept = new ArrayList<>();
+        for (int c = 0; c < cubes.size(); c++) {
+            long[] cube = cubes.get(c);
+            boolean subsumed = false;
+            for (int o = 0; o < cubes.size() && !subsumed; o++) {
+                long[] other = cubes.get(o);
+                // Of equal cubes the first one is kept.
+                subsumed = o != c && (other[0] & cube[0]) == other[0] && (cube[1] & other[0]) == other[1]
+                        && (other[0] != cube[0] || o < c);
+            }
+            if (!subsumed) {
+                kept.add(cube);
+            }
+        }
+        return kept;
+    }
+
+    // Places the bits of a value, lowest first, at the set bits of a mask.
+    private static long deposit(long value, long bits) {
+        long mask = 0;
+        for (long rest = bits; rest != 0 && value != 0; rest &= rest - 1) {
+            if ((value & 1) == 1) {
+                mask |= Long.lowestOneBit(rest);
+            }
+            value >>>= 1;
+        }
+        return mask;
+    }
+
+    /**
+     * Class: ExclusionNode
+     *
+     * Purpose: Node of a decision diagram counting the combinations of the bits of a set of
+     * cubes (care mask and value) that match none of them. The node splits on the highest
+     * bit of its cubes: for each value of the bit, the cubes not contradicting it (without
+     * the bit) are the child node, and the bits of the node no longer constrained by the
+     * child are free in that branch. Nodes of equal cube sets are shared, so e.g. independent
+     * transitions to exclude give a diagram linear in their number.
+     */
+    private static final class ExclusionNode {
+
+        // Node of no cubes: the one (empty) combination.
+        private static final ExclusionNode TERMINAL = new ExclusionNode();
+
+        private final int bit;                  // Bit split on, -1 for the terminal node.
+        private final ExclusionNode[] children; // Node of the cubes for the bit values 0 and 1 (null if a cube is matched), null for the terminal node.
+        private final long[] freebits;          // Bits of the node that are free in the branches of the bit values 0 and 1.
+        private final long[] counts;            // Combinations in the branches of the bit values 0 and 1.
+        private final long count;               // Combinations of the bits of the node.
+
+        private ExclusionNode() {
+            this.bit = -1;
+            this.children = null;
+            this.freebits = null;
+            this.counts = null;
+            this.count = 1;
+        }
+
+        private ExclusionNode(int bit, ExclusionNode[] children, long[] freebits, long[] counts) {
+            this.bit = bit;
+            this.children = children;
+            this.freebits = freebits;
+            this.counts = counts;
+            this.count = counts[0] + counts[1];
+        }
+
+        /**
+         * Builds the node of a set of cubes.
+         *
+         * @param cubes The cubes (care mask, value).
+         * @param nodes The nodes built so far, by their cubes.
+         * @return ExclusionNode - The node, or null if a cube has no care bits (every combination is matched).
+         * @throws IllegalStateException If the diagram exceeds `MAXEXCLUSIONNODES` nodes.
+         */
+        private static ExclusionNode build(List<long[]> cubes, Map<List<Long>, ExclusionNode> nodes) {
+            if (cubes.isEmpty()) {
+                return TERMINAL;
+            }
+            long carebits = 0;
+            for (long[] cube : cubes) {
+                if (cube[0] == 0) {
+                    return null;
+                }
+                carebits |= cube[0];
+            }
+            List<Long> key = keyOf(cubes);
+            if (nodes.containsKey(key)) {
+                return nodes.get(key);
+            }
+            if (nodes.size() >= MAXEXCLUSIONNODES) {
+                throw new IllegalStateException("the transitions to exclude need more than " + MAXEXCLUSIONNODES
+                        + " nodes to count the combinations (use relevant inputs or a covering array).");
+            }
+            int bit = 63 - Long.numberOfLeadingZeros(carebits);
+            long bitmask = 1L << bit;
+            ExclusionNode[] children = new ExclusionNode[2];
+            long[] freebits = new long[2];
+            long[] counts = new long[2];
+            for (int value = 0; value <= 1; value++) {
+                List<long[]> branch = new ArrayList<>();
+                long branchbits = 0;
+                for (long[] cube : cubes) {
+                    if ((cube[0] & bitmask) == 0) {
+                        branch.add(cube);
+                        branchbits |= cube[0];
+                    } else if ((cube[1] >> bit & 1) == value) {
+                        branch.add(new long[] {cube[0] & ~bitmask, cube[1] & ~bitmask});
+                        branchbits |= cube[0] & ~bitmask;
+                    }
+                }
+                children[value] = build(branch, nodes);
+                freebits[value] = carebits & ~bitmask & ~branchbits;
+                counts[value] = children[value] == null ? 0 : children[value].count << Long.bitCount(freebits[value]);
+            }
+            ExclusionNode node = new ExclusionNode(bit, children, freebits, counts);
+            nodes.put(key, node);
+            return node;
+        }
+
+        // The cubes in a canonical order, as the key of their node.
+        private static List<Long> keyOf(List<long[]> cubes) {
+            List<long[]> sorted = new ArrayList<>(cubes);
+            sorted.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            List<Long> key = new ArrayList<>();
+            for (long[] cube : sorted) {
+                key.add(cube[0]);
+                key.add(cube[1]);
+            }
+            return key;
         }
-        return true;
     }
 }
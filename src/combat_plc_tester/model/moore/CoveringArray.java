@@ -0,0 +1,337 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Class: CoveringArray
+ *
+ * Purpose: Generates a covering array of strength t over n bit-type inputs: a small set
+ * of combinations (masks) in which every t-way interaction, i.e. every combination of
+ * values of every t inputs, occurs at least once. A fault triggered by the values of at
+ * most t inputs is then detected by the covering array as well as by all 2^n combinations.
+ *
+ * The combinations are built one at a time (AETG): a combination starts with a t-way
+ * interaction not covered yet, and the other inputs get the value covering the most new
+ * interactions with the inputs already set. Of `CANDIDATES` combinations built with the
+ * inputs in random order, the one covering the most new interactions is taken.
+ *
+ * Excluded combinations are given as cubes (care mask and values, see
+ * `CombinatorialTransition`). A combination is built depth-first, and an input value
+ * completing an excluded cube is backtracked, so no excluded combination is generated.
+ * Interactions that only occur in excluded combinations can not be covered and are skipped.
+ * If the search for a combination of an interaction exceeds `MAXSEARCHSTEPS` in every
+ * candidate, the generation fails instead of skipping the interaction, so a covering array
+ * that is returned always covers every interaction not excluded.
+ *
+ * The generation can take a while (seconds for 30 inputs of strength 4), so it runs in the
+ * test task, and an interrupt of the thread cancels it.
+ *
+ * The random order has a fixed seed, so the same model always gets the same combinations.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class CoveringArray {
+
+    // Maximum strength of a covering array.
+    public static final int MAXSTRENGTH = 4;
+    // Maximum number of bit-type inputs of a covering array (bits of a mask).
+    public static final int MAXBITS = 63;
+    // Number of candidates built for each combination.
+    private static final int CANDIDATES = 20;
+    // Maximum number of input values tried to build a candidate.
+    private static final int MAXSEARCHSTEPS = 1 << 16;
+    // Seed of the random input order.
+    private static final long SEED = 1L;
+
+    private final int bits;                 // Number of bit-type inputs.
+    private final int strength;             // Strength t.
+    private final long[] excludedcares;     // Care masks of the excluded cubes.
+    private final long[] excludedvalues;    // Values of the excluded cubes.
+    private final String[] inputnames;      // Names of the inputs, for the failure message.
+    private final long[][] binomials;       // Binomial coefficients C(n, k), k <= t.
+    private final BitSet done;              // Interactions covered (or not coverable), by index.
+    private final Random random = new Random(SEED);
+
+    // State of the candidate being built.
+    private final int[] order;              // Inputs in the order they are set.
+    private long row;                       // Values set so far.
+    private long setmask;                   // Inputs set so far.
+    private int searchsteps;                // Input values tried so far.
+    private long bestrow;                   // Best complete candidate.
+    private int bestgain;                   // New interactions covered by the best candidate.
+
+    private CoveringArray(int bits, int strength, long[] excludedcares, long[] excludedvalues, String[] inputnames) {
+        this.bits = bits;
+        this.inputnames = inputnames;
+        this.strength = strength;
+        this.excludedcares = excludedcares;
+        this.excludedvalues = excludedvalues;
+        this.binomials = new long[bits + 1][strength + 1];
+        for (int n = 0; n <= bits; n++) {
+            binomials[n][0] = 1;
+            for (int k = 1; k <= strength; k++) {
+                binomials[n][k] = n == 0 ? 0 : binomials[n - 1][k - 1] + binomials[n - 1][k];
+            }
+        }
+        this.done = new BitSet();
+        this.order = new int[bits];
+    }
+
+    /**
+     * Generates a covering array.
+     *
+     * @param bits int - The number of bit-type inputs (at most `MAXBITS`).
+     * @param strength int - The strength t, from 1 to `MAXSTRENGTH` and at most the number of inputs.
+     * @param excludedcares long[] - The care masks of the excluded cubes.
+     * @param excludedvalues long[] - The values of the excluded cubes (within their care masks).
+     * @param inputnames String[] - The names of the inputs, for the failure message.
+     * @return long[] - The masks of the combinations, in ascending order.
+     * @throws IllegalStateException If an interaction could not be covered within the search steps.
+     * @throws CancellationException If the thread is interrupted.
+     */
+    public static long[] generate(int bits, int strength, long[] excludedcares, long[] excludedvalues, String[] inputnames) {
+        if (bits > MAXBITS || strength < 1 || strength > Math.min(MAXSTRENGTH, bits)) {
+            throw new IllegalArgumentException("Covering array of strength " + strength + " over " + bits + " inputs not supported.");
+        }
+        return new CoveringArray(bits, strength, excludedcares, excludedvalues, inputnames).generate();
+    }
+
+    private long[] generate() {
+        long interactions = binomials[bits][strength] << strength;
+        long[] rows = new long[16];
+        int rowcount = 0;
+        for (long care : excludedcares) {
+            if (care == 0) {
+                // Excludes every combination.
+                return new long[0];
+            }
+        }
+        int next;
+        while ((next = done.nextClearBit(0)) < interactions) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Covering array generation cancelled.");
+            }
+            long row = buildRow(next);
+            if (row < 0) {
+                // Only occurs in excluded combinations.
+                done.set(next);
+                continue;
+            }
+            if (rowcount == rows.length) {
+                rows = Arrays.copyOf(rows, rowcount * 2);
+            }
+            rows[rowcount++] = row;
+            markCovered(row);
+        }
+        rows = Arrays.copyOf(rows, rowcount);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Builds the candidates of a combination covering an interaction and returns the best one.
+     *
+     * @param interaction int - The index of the interaction.
+     * @return long - The combination, or -1 if every combination with the interaction is excluded.
+     * @throws IllegalStateException If every candidate exceeded the search steps.
+     */
+    private long buildRow(int interaction) {
+        // The inputs and values of the interaction (see `indexOf`).
+        long rank = interaction >>> strength;
+        int pattern = interaction & ((1 << strength) - 1);
+        long seedmask = 0;
+        long seedrow = 0;
+        for (int i = strength; i >= 1; i--) {
+            int c = i - 1;
+            while (c + 1 < bits && binomials[c + 1][i] <= rank) {
+                c++;
+            }
+            rank -= binomials[c][i];
+            seedmask |= 1L << c;
+            if ((pattern >> (i - 1) & 1) == 1) {
+                seedrow |= 1L << c;
+            }
+        }
+        bestrow = -1;
+        bestgain = -1;
+        for (int candidate = 0; candidate < CANDIDATES; candidate++) {
+            // The inputs of the interaction first, the other inputs in random order.
+            int k = 0;
+            for (int b = 0; b < bits; b++) {
+                if ((seedmask >> b & 1) == 1) {
+                    order[k++] = b;
+                }
+            }
+            for (int b = 0; b < bits; b++) {
+                if ((seedmask >> b & 1) == 0) {
+                    order[k++] = b;
+                }
+            }
+            for (int i = bits - 1; i > strength; i--) {
+                int j = strength + random.nextInt(i - strength + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            row = 0;
+            setmask = 0;
+            searchsteps = 0;
+            boolean found = search(0, 0, seedrow);
+            if (!found && searchsteps < MAXSEARCHSTEPS) {
+                // Searched completely: every combination with the interaction is excluded.
+                return -1;
+            }
+        }
+        if (bestrow < 0) {
+            StringBuilder interactiontext = new StringBuilder();
+            for (int b = 0; b < bits; b++) {
+                if ((seedmask >> b & 1) == 1) {
+                    interactiontext.append(interactiontext.length() == 0 ? "" : ", ").append(inputnames[b]).append('=').append((seedrow >> b & 1) == 1);
+                }
+            }
+            throw new IllegalStateException("No combination with " + interactiontext + " found within " + MAXSEARCHSTEPS
+                    + " steps, the interaction can not be covered (simplify the transitions to exclude or lower the covering strength).");
+        }
+        return bestrow;
+    }
+
+    /**
+     * Sets the inputs from a position of the order on, depth-first.
+     *
+     * @param position int - The position in the order of the next input to set.
+     * @param gain int - The new interactions covered by the inputs set so far.
+     * @param seedrow long - The values of the interaction the combination starts with.
+     * @return boolean - true if a complete candidate was found, false if every value completes an excluded combination.
+     */
+    private boolean search(int position, int gain, long seedrow) {
+        if (position == bits) {
+            if (gain > bestgain) {
+                bestgain = gain;
+                bestrow = row;
+            }
+            return true;
+        }
+        int input = order[position];
+        long bit = 1L << input;
+        int[] gains = new int[2];
+        int first;
+        if (position < strength) {
+            first = (seedrow & bit) != 0 ? 1 : 0;
+        } else {
+            countGains(position, input, gains);
+            first = gains[1] > gains[0] || (gains[1] == gains[0] && random.nextBoolean()) ? 1 : 0;
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int value = attempt == 0 ? first : 1 - first;
+            if (position < strength && attempt == 1) {
+                break;
+            }
+            if (++searchsteps > MAXSEARCHSTEPS) {
+                return false;
+            }
+            setmask |= bit;
+            row = value == 1 ? row | bit : row & ~bit;
+            boolean found = !isExcluded(bit) && search(position + 1, gain + (position == strength - 1 ? (isDone(row, setmask) ? 0 : 1) : gains[value]), seedrow);
+            setmask &= ~bit;
+            row &= ~bit;
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether setting an input completes an excluded cube.
+    private boolean isExcluded(long bit) {
+        for (int e = 0; e < excludedcares.length; e++) {
+            long care = excludedcares[e];
+            if ((care & bit) != 0 && (setmask & care) == care && (row & care) == excludedvalues[e]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the new interactions of an input with t - 1 of the inputs set before it, for both values.
+     *
+     * @param position int - The position of the input in the order.
+     * @param input int - The input.
+     * @param gains int[] - The new interactions for the values 0 and 1.
+     */
+    private void countGains(int position, int input, int[] gains) {
+        int[] chosen = new int[strength - 1];
+        countGains(position, input, gains, chosen, 0, 0);
+    }
+
+    private void countGains(int position, int input, int[] gains, int[] chosen, int depth, int from) {
+        if (depth == strength - 1) {
+            long mask = 1L << input;
+            for (int c : chosen) {
+                mask |= 1L << c;
+            }
+            if (!isDone(row, mask)) {
+                gains[0]++;
+            }
+            if (!isDone(row | 1L << input, mask)) {
+                gains[1]++;
+            }
+            return;
+        }
+        for (int p = from; p < position; p++) {
+            chosen[depth] = order[p];
+            countGains(position, input, gains, chosen, depth + 1, p + 1);
+        }
+    }
+
+    // Whether the interaction of the inputs of a mask with their values in a row is covered.
+    private boolean isDone(long row, long mask) {
+        return done.get(indexOf(row, mask));
+    }
+
+    /**
+     * Returns the index of an interaction: the rank of its inputs c1 < ... < ct in the
+     * combinatorial number system (sum of C(ci, i)), followed by their values (bit i - 1 is
+     * the value of ci).
+     *
+     * @param row long - The values of the inputs.
+     * @param mask long - The t inputs of the interaction.
+     * @return int - The index of the interaction.
+     */
+    private int indexOf(long row, long mask) {
+        long rank = 0;
+        int pattern = 0;
+        int i = 0;
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            int c = Long.numberOfTrailingZeros(rest);
+            rank += binomials[c][i + 1];
+            if ((row >> c & 1) == 1) {
+                pattern |= 1 << i;
+            }
+            i++;
+        }
+        return (int) (rank << strength | pattern);
+    }
+
+    // Marks the interactions of a combination as covered.
+    private void markCovered(long row) {
+        markCovered(row, 0, 0, 0);
+    }
+
+    private void markCovered(long row, long mask, int depth, int from) {
+        if (depth == strength) {
+            done.set(indexOf(row, mask));
+            return;
+        }
+        for (int b = from; b <= bits - strength + depth; b++) {
+            markCovered(row, mask | 1L << b, depth + 1, b + 1);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import combat_plc_tester.model.IO.Input;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class: CycleCache
+ *
+ * Purpose: Cache of generated test cycles, keyed by a structural fingerprint of the model
+ * (see `fingerprint`). The fingerprint only covers what the generated cycles depend on:
+ * the strategy and its options, the state IDs, the transitions (ID, type, start and end
+ * state) and the sequential transitions to test and to exclude of combinatorial transitions
+ * (with their input values, and a hash of the masks of the combinations to test). Layout coordinates, names and labels are not part of it, so
+ * moving elements of an unchanged model keeps its cached cycles.
+ *
+ * The cache keeps the `MAXENTRIES` most recently used models and can be saved to and
+ * loaded from a file (Java serialization).
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class CycleCache implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    // Maximum number of cached models.
+    public static final int MAXENTRIES = 8;
+    // Number of combination masks hashed at once (see `appendTestMasks`).
+    private static final int MASKCHUNK = 1024;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(); // Cached cycles by fingerprint, least recently used first.
+
+    /**
+     * Class: Entry
+     *
+     * Purpose: The cycles generated for a model, with the coverage report of the strategy.
+     */
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final Set<List<String>> cycles; // The generated cycles.
+        private final String coveragereport; // The coverage report of the strategy, or null.
+
+        public Entry(Set<List<String>> cycles, String coveragereport) {
+            this.cycles = new LinkedHashSet<>(cycles);
+            this.coveragereport = coveragereport;
+        }
+
+        /**
+         * Returns a copy of the cached cycles.
+         *
+         * @return Set<List<String>> - The cycles.
+         */
+        public Set<List<String>> getCycles() {
+            return new LinkedHashSet<>(cycles);
+        }
+
+        public String getCoverageReport() {
+            return coveragereport;
+        }
+    }
+
+    /**
+     * Returns the cycles cached for a fingerprint.
+     *
+     * @param fingerprint String - The fingerprint of the model.
+     * @return Entry - The cached cycles, or null if the model is not cached.
+     */
+    public synchronized Entry get(String fingerprint) {
+        Entry entry = entries.remove(fingerprint);
+        if (entry != null) {
+            entries.put(fingerprint, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the cycles of a model, removing the least recently used model if the cache is full.
+     *
+     * @param fingerprint String - The fingerprint of the model.
+     * @param entry Entry - The cycles of the model.
+     */
+    public synchronized void put(String fingerprint, Entry entry) {
+        entries.remove(fingerprint);
+        entries.put(fingerprint, entry);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > MAXENTRIES) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Computes the structural fingerprint of a model for a strategy.
+     *
+     * @param strategy CycleGeneratorStrategy - The strategy generating the cycles.
+     * @param stategraphelementList List<GraphElement> - A list of state graph elements.
+     * @param transitiongraphelementList List<GraphElement> - A list of transition graph elements.
+     * @return String - The fingerprint (SHA-256, hexadecimal).
+     */
+    public static String fingerprint(CycleGeneratorStrategy strategy, List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
+        StringBuilder text = new StringBuilder();
+        text.append(strategy.getClass().getName()).append('|').append(strategy.getOptions()).append('\n');
+        for (GraphElement graphelement : stategraphelementList) {
+            text.append("S|").append(((State) graphelement).getStateID()).append('\n');
+        }
+        for (GraphElement graphelement : transitiongraphelementList) {
+            Transition transition = (Transition) graphelement;
+            text.append("T|").append(transition.getClass().getSimpleName()).append('|').append(transition.getTransitionID())
+                    .append('|').append(transition.getStartStateID()).append('|').append(transition.getEndStateID()).append('\n');
+            if (transition instanceof CombinatorialTransition) {
+                CombinatorialTransition combinatorialtransition = (CombinatorialTransition) transition;
+                // The combinations to test follow from the bit-type inputs and the transitions to exclude.
+                text.append("C|").append(combinatorialtransition.getCoveringStrength()).append('|').append(combinatorialtransition.getSequentialTransitionsToTest().size());
+                for (Input input : combinatorialtransition.getBitInputs()) {
+                    text.append('|').append(input.getInputID());
+                }
+                appendInputs(text, combinatorialtransition.getInputs());
+                for (SequentialTransition sequentialtransition : combinatorialtransition.getSequentialTransitionsToExclude()) {
+                    text.append("X|");
+                    appendInputs(text, sequentialtransition.getInputs());
+                }
+                // The combinations also follow from the model inputs not combined (their initial values are
+                // pinned, see `CombinatorialTransition.getRelevantInputs`), so the masks themselves are part of it.
+                appendTestMasks(text, combinatorialtransition);
+            }
+        }
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256; fall back to the text itself.
+            return text.toString();
+        }
+    }
+
+    // Appends the masks of the combinations to test of a combinatorial transition, as a hash (SHA-256).
+    private static void appendTestMasks(StringBuilder text, CombinatorialTransition combinatorialtransition) {
+        int size = combinatorialtransition.getSequentialTransitionsToTest().size();
+        text.append("M|");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer masks = ByteBuffer.allocate(8 * MASKCHUNK);
+            for (int i = 0; i < size; i++) {
+                if (!masks.hasRemaining()) {
+                    digest.update(masks.array(), 0, masks.position());
+                    masks.clear();
+                }
+                masks.putLong(combinatorialtransition.getTestMask(i));
+            }
+            digest.update(masks.array(), 0, masks.position());
+            text.append(toHex(digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256; fall back to the masks themselves.
+            for (int i = 0; i < size; i++) {
+                text.append(Long.toHexString(combinatorialtransition.getTestMask(i))).append(',');
+            }
+        }
+        text.append('\n');
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+        return hex.toString();
+    }
+
+    private static void appendInputs(StringBuilder text, List<Input> inputs) {
+        for (Input input : inputs) {
+            text.append('|').append(input.getInputID()).append('=').append(input.getValue());
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Saves the cache to a file.
+     *
+     * @param file File - The cache file.
+     * @throws IOException If the file can not be written.
+     */
+    public synchronized void save(File file) throws IOException {
+        try (ObjectOutputStream objectoutputstream = new ObjectOutputStream(new FileOutputStream(file))) {
+            objectoutputstream.writeObject(this);
+        }
+    }
+
+    /**
+     * Loads the models cached in a file into this cache. Models cached in this cache are kept.
+     *
+     * @param file File - The cache file.
+     * @throws IOException If the file can not be read.
+     * @throws ClassNotFoundException If the file does not contain a cache.
+     */
+    public void load(File file) throws IOException, ClassNotFoundException {
+        CycleCache loaded;
+        try (ObjectInputStream objectinputstream = new ObjectInputStream(new FileInputStream(file))) {
+            loaded = (CycleCache) objectinputstream.readObject();
+        }
+        synchronized (this) {
+            for (Map.Entry<String, Entry> entry : loaded.entries.entrySet()) {
+                entries.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            Iterator<String> iterator = entries.keySet().iterator();
+            while (entries.size() > MAXENTRIES) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class: CycleCoverageAlgorithm
+ *
+ * Purpose: Implements the strategy for generating a small set of test cycles that covers
+ * every transition of the modified Moore model, and optionally every pair of consecutive
+ * transitions, instead of all the cycles up to the loop limits (`CycleGeneratorAlgorithm`).
+ *
+ * Design Patterns:
+ * - Strategy Pattern: This concrete algorithm implements the `CycleGeneratorStrategy` interface.
+ *
+ * Functionality:
+ * 1. Determines the targets to cover: the transitions (or pairs of consecutive transitions)
+ *    that can be part of a cycle starting and ending with the initial state ("S0").
+ * 2. Builds the cycles greedily: a cycle starts at "S0" and repeatedly walks the shortest
+ *    path to the nearest uncovered target, takes it, and continues from its end state
+ *    (without passing through "S0"), until no uncovered target can be reached. It then
+ *    returns to "S0" along the shortest path. Every target on the way is covered too.
+ * 3. Repeats until all targets are covered; every cycle covers at least one new target.
+ * 4. Converts combinatorial transitions into sequential transitions IDs, as `CycleGeneratorAlgorithm`.
+ * 5. Reports the coverage achieved (`getCoverageReport`).
+ *
+ * The selection only depends on the model: the ties between targets at the same distance
+ * are broken by the order of the transitions in the model, and the cycles are returned in
+ * the order they were built.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class CycleCoverageAlgorithm implements CycleGeneratorStrategy {
+
+    // Distance of a state that can not be reached.
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final boolean transitionpairs; // Also cover every pair of consecutive transitions.
+    private CycleGraph graph; // Graph of the current run.
+    private int[] returndistances; // Number of transitions from each state back to "S0".
+    private int[] returntransitions; // First transition of the shortest path from each state back to "S0".
+    private boolean[] coveredtransitions; // Covered transitions.
+    private Set<Long> coveredpairs; // Covered pairs of consecutive transitions (see `pairKey`).
+    private volatile String coveragereport; // Coverage achieved by the last run.
+
+    /**
+     * Creates the strategy covering every transition.
+     */
+    public CycleCoverageAlgorithm() {
+        this(false);
+    }
+
+    /**
+     * Creates the strategy.
+     *
+     * @param transitionpairs boolean - Also cover every pair of consecutive transitions.
+     */
+    public CycleCoverageAlgorithm(boolean transitionpairs) {
+        this.transitionpairs = transitionpairs;
+    }
+
+    // Strategy for generating sequential and combinatorial test cycles.
+    @Override
+    public Set<List<String>> generateCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
+        graph = new CycleGraph(transitiongraphelementList);
+        int[] startdistances = getStartDistances();
+        computeReturnPaths();
+        coveredtransitions = new boolean[graph.getTransitionCount()];
+        coveredpairs = new HashSet<>();
+        // Targets that can be part of a cycle.
+        int transitiontargets = 0;
+        int pairtargets = 0;
+        List<String> uncoverable = new ArrayList<>();
+        for (int t = 0; t < graph.getTransitionCount(); t++) {
+            if (isCoverable(startdistances, t)) {
+                transitiontargets++;
+                if (transitionpairs && graph.getTransitionEnd(t) != CycleGraph.STARTSTATE) {
+                    int end = graph.getTransitionEnd(t);
+                    for (int k = graph.getOutStart(end); k < graph.getOutEnd(end); k++) {
+                        int u = graph.getOutTransition(k);
+                        if (u != t && returndistances[graph.getTransitionEnd(u)] != UNREACHABLE) {
+                            pairtargets++;
+                        }
+                    }
+                }
+            } else {
+                uncoverable.add(graph.getName(CycleGraph.transitionCode(t)));
+            }
+        }
+        Set<List<String>> cycles = new LinkedHashSet<>();
+        int[] cycle;
+        while ((cycle = buildCycle()) != null) {
+            cycles.add(graph.toList(new CyclePath(cycle)));
+        }
+        int coveredtransitioncount = 0;
+        for (boolean covered : coveredtransitions) {
+            coveredtransitioncount += covered ? 1 : 0;
+        }
+        StringBuilder report = new StringBuilder();
+        report.append("Coverage: ").append(cycles.size()).append(" cycles, transitions covered ")
+                .append(coveredtransitioncount).append("/").append(transitiontargets);
+        if (transitionpairs) {
+            report.append(", transition pairs covered ").append(coveredpairs.size()).append("/").append(pairtargets);
+        }
+        if (!uncoverable.isEmpty()) {
+            report.append(", transitions not on a cycle from S0: ").append(uncoverable);
+        }
+        coveragereport = report.toString();
+        graph = null;
+        coveredpairs = null;
+        return cycles;
+    }
+
+    @Override
+    public String getCoverageReport() {
+        return coveragereport;
+    }
+
+    @Override
+    public String getOptions() {
+        return "transitionpairs=" + transitionpairs;
+    }
+
+    /**
+     * Computes the number of transitions from "S0" to each state (breadth-first search).
+     *
+     * @return int[] - The distances, `UNREACHABLE` for states that can not be reached.
+     */
+    private int[] getStartDistances() {
+        int[] distances = new int[graph.getStateCount()];
+        Arrays.fill(distances, UNREACHABLE);
+        int[] queue = new int[graph.getStateCount()];
+        int head = 0;
+        int tail = 0;
+        distances[CycleGraph.STARTSTATE] = 0;
+        queue[tail++] = CycleGraph.STARTSTATE;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int k = graph.getOutStart(state); k < graph.getOutEnd(state); k++) {
+                int next = graph.getTransitionEnd(graph.getOutTransition(k));
+                if (distances[next] == UNREACHABLE) {
+                    distances[next] = distances[state] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Computes the shortest paths from each state back to "S0" (breadth-first search
+     * over the reversed transitions): `returndistances` and `returntransitions`.
+     */
+    private void computeReturnPaths() {
+        int statecount = graph.getStateCount();
+        returndistances = new int[statecount];
+        returntransitions = new int[statecount];
+        Arrays.fill(returndistances, UNREACHABLE);
+        Arrays.fill(returntransitions, -1);
+        // Transitions by end state (CSR), in the order of the model.
+        int[] inoffsets = new int[statecount + 1];
+        for (int t = 0; t < graph.getTransitionCount(); t++) {
+            inoffsets[graph.getTransitionEnd(t) + 1]++;
+        }
+        for (int s = 0; s < statecount; s++) {
+            inoffsets[s + 1] += inoffsets[s];
+        }
+        int[] intransitions = new int[graph.getTransitionCount()];
+        int[] next = new int[statecount];
+        for (int t = 0; t < graph.getTransitionCount(); t++) {
+            int s = graph.getTransitionEnd(t);
+            intransitions[inoffsets[s] + next[s]++] = t;
+        }
+        int[] queue = new int[statecount];
+        int head = 0;
+        int tail = 0;
+        returndistances[CycleGraph.STARTSTATE] = 0;
+        queue[tail++] = CycleGraph.STARTSTATE;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int k = inoffsets[state]; k < inoffsets[state + 1]; k++) {
+                int t = intransitions[k];
+                int previous = graph.getTransitionStart(t);
+                if (returndistances[previous] == UNREACHABLE) {
+                    returndistances[previous] = returndistances[state] + 1;
+                    returntransitions[previous] = t;
+                    queue[tail++] = previous;
+                }
+            }
+        }
+    }
+
+    // A transition can be part of a cycle if its start state can be reached from "S0" and "S0" can be reached from its end state.
+    private boolean isCoverable(int[] startdistances, int transition) {
+        return startdistances[graph.getTransitionStart(transition)] != UNREACHABLE
+                && returndistances[graph.getTransitionEnd(transition)] != UNREACHABLE;
+    }
+
+    // Key of a pair of consecutive transitions.
+    private static long pairKey(int transition, int nexttransition) {
+        return ((long) transition << 32) | nexttransition;
+    }
+
+    /**
+     * Builds the next cycle covering at least one uncovered target.
+     *
+     * @return int[] - The codes of the cycle, or null if all targets are covered.
+     */
+    private int[] buildCycle() {
+        List<Integer> transitions = new ArrayList<>();
+        int current = CycleGraph.STARTSTATE;
+        do {
+            int[] step = findNearestTarget(current);
+            if (step == null) {
+                break;
+            }
+            for (int t : step) {
+                take(transitions, t);
+            }
+            current = graph.getTransitionEnd(step[step.length - 1]);
+        } while (current != CycleGraph.STARTSTATE);
+        if (transitions.isEmpty()) {
+            return null;
+        }
+        // Return to "S0" along the shortest path.
+        while (current != CycleGraph.STARTSTATE) {
+            int t = returntransitions[current];
+            take(transitions, t);
+            current = graph.getTransitionEnd(t);
+        }
+        int[] cycle = new int[transitions.size() * 2 + 1];
+        cycle[0] = CycleGraph.stateCode(CycleGraph.STARTSTATE);
+        for (int i = 0; i < transitions.size(); i++) {
+            int t = transitions.get(i);
+            cycle[i * 2 + 1] = CycleGraph.transitionCode(t);
+            cycle[i * 2 + 2] = CycleGraph.stateCode(graph.getTransitionEnd(t));
+        }
+        return cycle;
+    }
+
+    // Adds a transition to the cycle being built and covers it, with the pair it forms with the previous transition.
+    private void take(List<Integer> transitions, int transition) {
+        int previous = transitions.isEmpty() ? -1 : transitions.get(transitions.size() - 1);
+        if (previous >= 0 && previous != transition) {
+            coveredpairs.add(pairKey(previous, transition));
+        }
+        coveredtransitions[transition] = true;
+        transitions.add(transition);
+    }
+
+    /**
+     * Finds the nearest uncovered target from a state (breadth-first search that does not
+     * pass through "S0", unless the search starts there).
+     *
+     * @param from int - The state to start from.
+     * @return int[] - The transitions from the state up to and including the target, or null if no target can be reached.
+     */
+    private int[] findNearestTarget(int from) {
+        int statecount = graph.getStateCount();
+        int[] parenttransitions = new int[statecount];
+        boolean[] visited = new boolean[statecount];
+        int[] queue = new int[statecount];
+        int head = 0;
+        int tail = 0;
+        visited[from] = true;
+        queue[tail++] = from;
+        while (head < tail) {
+            int state = queue[head++];
+            if (state == CycleGraph.STARTSTATE && state != from) {
+                continue;
+            }
+            for (int k = graph.getOutStart(state); k < graph.getOutEnd(state); k++) {
+                int t = graph.getOutTransition(k);
+                int end = graph.getTransitionEnd(t);
+                if (returndistances[end] == UNREACHABLE) {
+                    continue;
+                }
+                int target = getTarget(t);
+                if (target != -2) {
+                    return getSteps(parenttransitions, from, state, t, target);
+                }
+                if (!visited[end]) {
+                    visited[end] = true;
+                    parenttransitions[end] = t;
+                    queue[tail++] = end;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a transition starts an uncovered target.
+     *
+     * @param transition int - The transition (its end state can return to "S0").
+     * @return int - -1 if the transition is an uncovered target, the next transition of an
+     * uncovered pair starting with the transition, or -2 if it starts no uncovered target.
+     */
+    private int getTarget(int transition) {
+        if (!coveredtransitions[transition]) {
+            return -1;
+        }
+        int end = graph.getTransitionEnd(transition);
+        if (transitionpairs && end != CycleGraph.STARTSTATE) {
+            for (int k = graph.getOutStart(end); k < graph.getOutEnd(end); k++) {
+                int u = graph.getOutTransition(k);
+                if (u != transition && returndistances[graph.getTransitionEnd(u)] != UNREACHABLE
+                        && !coveredpairs.contains(pairKey(transition, u))) {
+                    return u;
+                }
+            }
+        }
+        return -2;
+    }
+
+    // Collects the transitions from the start of the search up to the target.
+    private int[] getSteps(int[] parenttransitions, int from, int state, int transition, int nexttransition) {
+        List<Integer> steps = new ArrayList<>();
+        for (int s = state; s != from; s = graph.getTransitionStart(parenttransitions[s])) {
+            steps.add(0, parenttransitions[s]);
+        }
+        steps.add(transition);
+        if (nexttransition >= 0) {
+            steps.add(nexttransition);
+        }
+        int[] result = new int[steps.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = steps.get(i);
+        }
+        return result;
+    }
+}
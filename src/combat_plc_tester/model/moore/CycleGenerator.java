@@ -2,6 +2,7 @@
 package combat_plc_tester.model.moore;
 
 // Imports
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -14,6 +15,9 @@ import java.util.Set;
  * - Strategy Pattern: This class encapsulates the algorithm for generating test cycles, 
  *   allowing dynamic selection and switching of different strategies at runtime.
  *
+ * The generated cycles are cached by structural fingerprint of the model (`CycleCache`),
+ * so an unchanged model is not generated again.
+ *
  * @author Seniow Andy
  * @version 1.0
  * @since 13/01/2025
@@ -21,6 +25,8 @@ import java.util.Set;
 public class CycleGenerator {
 
     private CycleGeneratorStrategy strategy;
+    private final CycleCache cyclecache = new CycleCache(); // Generated cycles by model fingerprint.
+    private volatile String coveragereport; // Coverage report of the last generated or cached cycles.
 
     public CycleGenerator() {
       
@@ -35,16 +41,81 @@ public class CycleGenerator {
         this.strategy = strategy;
     }
 
+    public CycleGeneratorStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns the coverage achieved by the last test cycles of the current strategy.
+     *
+     * @return String - The coverage report, or null if the strategy does not report coverage.
+     */
+    public String getCoverageReport() {
+        return coveragereport;
+    }
+
+    public CycleCache getCycleCache() {
+        return cyclecache;
+    }
+
     /**
      * Generates test cycles using the current strategy.
      *
-     * Delegates the task of cycle generation to the strategy implementation.
+     * Delegates the task of cycle generation to the strategy implementation,
+     * unless the cycles of the model are cached.
      *
      * @param stategraphelementList List<GraphElement> - A list of state graph elements.
      * @param transitiongraphelementList List<GraphElement> - A list of transition graph elements.
      * @return Set<List<String>> - A set of test cycles generated by the strategy.
      */
     public Set<List<String>> generateCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
-        return strategy.generateCycles(stategraphelementList, transitiongraphelementList);
+        String fingerprint = CycleCache.fingerprint(strategy, stategraphelementList, transitiongraphelementList);
+        CycleCache.Entry entry = cyclecache.get(fingerprint);
+        if (entry == null) {
+            entry = new CycleCache.Entry(strategy.generateCycles(stategraphelementList, transitiongraphelementList), strategy.getCoverageReport());
+            cyclecache.put(fingerprint, entry);
+        }
+        coveragereport = entry.getCoverageReport();
+        return entry.getCycles();
+    }
+
+    /**
+     * Streams test cycles using the current strategy while they are generated.
+     * Cached cycles are streamed without generation; otherwise the streamed cycles
+     * are cached once the generation has streamed all of them (not after a stop or a failure).
+     *
+     * @param stategraphelementList List<GraphElement> - A list of state graph elements.
+     * @param transitiongraphelementList List<GraphElement> - A list of transition graph elements.
+     * @return CycleStream - The test cycles generated by the strategy.
+     */
+    public CycleStream streamCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
+        String fingerprint = CycleCache.fingerprint(strategy, stategraphelementList, transitiongraphelementList);
+        CycleCache.Entry entry = cyclecache.get(fingerprint);
+        if (entry != null) {
+            coveragereport = entry.getCoverageReport();
+            return new CycleStream(sink -> entry.getCycles().forEach(sink));
+        }
+        coveragereport = null;
+        CycleGeneratorStrategy runstrategy = strategy;
+        CycleStream generated = runstrategy.streamCycles(stategraphelementList, transitiongraphelementList);
+        return new CycleStream(sink -> {
+            try {
+                Set<List<String>> cycles = new LinkedHashSet<>();
+                while (generated.hasNext()) {
+                    List<String> cycle = generated.next();
+                    cycles.add(cycle);
+                    sink.accept(cycle);
+                }
+                if (!generated.isComplete()) {
+                    // Interrupted or closed: the cycles are incomplete and must not be cached.
+                    throw new IllegalStateException("Cycle generation was interrupted.");
+                }
+                CycleCache.Entry generatedentry = new CycleCache.Entry(cycles, runstrategy.getCoverageReport());
+                cyclecache.put(fingerprint, generatedentry);
+                coveragereport = generatedentry.getCoverageReport();
+            } finally {
+                generated.close();
+            }
+        });
     }  
 }
@@ -5,10 +5,11 @@ package combat_plc_tester.model.moore;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
 /**
  * Class: CycleGeneratorAlgorithm
@@ -27,8 +28,8 @@ import java.util.Set;
  *    - Paths starting from "S0" but not returning to it.
  *    - Second-level paths that do not start at "S0".
  * 3. Avoids redundant paths by eliminating excessive loops (double self consecutive loops, triple consecutive loops).
- * 4. Converts combinatorial transitions (IDs starting with "c") into sequential transitions IDs
- *    for ease of processing and testing.
+ * 4. Converts the paths back into IDs; combinatorial transitions (IDs starting with "c") stay one
+ *    element and are expanded into their sequential transitions by the test as it runs.
  * 5. Returns a set of test cycles ready for further processing.
  *
  *
@@ -41,23 +42,26 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
     private List<GraphElement> stategraphelementList;
     // List of transition graph elements.
     private List<GraphElement> transitiongraphelementList;
+    // Integer-indexed graph of the transitions, built once per run.
+    private CycleGraph graph;
     // Maximum depth from the start state.
     private int maxdepth = 0;
       
-    // Next members are sets of string lists, where each list represents a path.
+    // Next members are sets of paths of the graph, encoded as codes of states and transitions.
     // Each path is the result of path concatenation with an overlapping node, 
     // where the last element of the first path matches the first element of the second path.
     // --------------------------------------------------------------------------------------
-    // A set of string lists, where each list represents a path, 
-    // where the path does not start with the start state "S0".
-    private Set<List<String>> intermediatepaths;
-    // A set of string lists, where each list represents a path 
-    // that starts with the initial state "S0" but does not end with it.
-    private Set<List<String>> openpaths;
-    // A set of string lists, where each list represents a path, 
-    // where the path starts and ends with the start state "S0".
-    private Set<List<String>> generatedcyles;
+    // A set of paths, where the path does not start with the start state "S0".
+    private Set<CyclePath> intermediatepaths;
+    // The intermediate paths by start state index, built at the end of the first level.
+    private CyclePath[][] intermediateindex;
+    // A set of paths that start with the initial state "S0" but do not end with it.
+    private Set<CyclePath> openpaths;
+    // A set of paths, where the path starts and ends with the start state "S0".
+    private Set<CyclePath> generatedcyles;
     private Set<List<String>> generatedcylesToTest;
+    // Receives each new cycle to test as soon as it is generated (streaming run), or null.
+    private Consumer<List<String>> cyclesink;
     // Minimum path size ([S1, T1, S2]).
     private static int MIN_PATH_SIZE = 3;
     // Minimum loop size ([S1, T1, S2, T2, ]).
@@ -68,6 +72,8 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
     private static int NEXT_LOOP_FACTOR = 4;
     // Factor used to detect triple loops larger than the minimum loop size (`MIN_LOOP_SIZE_FOR_TRIPLE_LOOP`).
     private static int NEXT_LOOP_FACTOR_FOR_TRIPLE_LOOP = 12;
+    // Maximum number of open paths joined by one task of a level, larger ranges are split.
+    private static final int JOIN_THRESHOLD = 64;
     
     public CycleGeneratorAlgorithm(){ 
       this.intermediatepaths = new HashSet<>();  
@@ -86,6 +92,10 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * - Cycles (`generatedcycles`): Paths that start and end with the initial state "S0". 
      * - Paths starting from the initial state (`generatedpaths`): Paths that start at "S0" but do not return to it.  
      *
+     * Only the transitions leaving the end state of a transition are visited (CSR adjacency of `graph`).
+     * At the end, the intermediate paths are indexed by start state (`intermediateindex`), so the next
+     * levels only join an open path with the intermediate paths starting at its last state.
+     *
      * Examples thas sets can contain: 
      * - `firstlevelpaths`: [S1, T2, S2, T3, S3] ...
      * - `generatedpaths`: [S0, T1, S1, T2, S2] ...
@@ -94,65 +104,91 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      */
     public void generateAndCategorizeFirstPaths() {
         // Generate a first level paths from each transition and add it to the intermediatepaths set.
-        for (int i = 0; i < transitiongraphelementList.size(); i++) {
+        for (int i = 0; i < graph.getTransitionCount(); i++) {
+            int start = graph.getTransitionStart(i);
+            int end = graph.getTransitionEnd(i);
             // If the transition path starts and ends with "S0", then it is a cycle and should be added to the set of generated cycles.
-            Transition startTransition = (Transition) transitiongraphelementList.get(i);
-             if(startTransition.getStartStateID().equals("S0")&&startTransition.getEndStateID().equals("S0"))
-                {
-                List<String> newPath = Arrays.asList(
-                            startTransition.getStartStateID(),
-                            startTransition.getTransitionID(),
-                            startTransition.getEndStateID()
-                    );
-                generatedcyles.add(newPath);
-                continue; 
-                }
+            if (start == CycleGraph.STARTSTATE && end == CycleGraph.STARTSTATE) {
+                addCycle(new CyclePath(CycleGraph.stateCode(start), CycleGraph.transitionCode(i), CycleGraph.stateCode(end)));
+                continue;
+            }
             // Generate first level paths.
-            // Perform path concatenation with overlapping node if the last element of the first path
-            // matches the first element of the second path.
-            for (int j = 0; j < transitiongraphelementList.size(); j++) {
+            // Perform path concatenation with overlapping node: the next transitions start at the end state of the first transition.
+            for (int k = graph.getOutStart(end); k < graph.getOutEnd(end); k++) {
+                int j = graph.getOutTransition(k);
                 if (i == j) {
                     continue; // Avoid equal transition.
                 }
-                Transition nextTransition = (Transition) transitiongraphelementList.get(j);
-                // Check if the end state of the first transition matches the start state of the next transition.
-                if (startTransition.getEndStateID().equals(nextTransition.getStartStateID())) {
-                    // Add a new path by concatenating the path of the start transition with the path of the next transition.
-                    List<String> newPath = Arrays.asList(
-                            startTransition.getStartStateID(),
-                            startTransition.getTransitionID(),
-                            startTransition.getEndStateID(),
-                            nextTransition.getTransitionID(),
-                            nextTransition.getEndStateID()
-                    );
-                    // If the path starts and ends with the initial state "S0", add it to the generatedcycles set.
-                    if (startTransition.getStartStateID().equals("S0") && nextTransition.getEndStateID().equals("S0")) {
-                        generatedcyles.add(newPath);
-                    // Else if only the path starts with the initial state "S0", add it to the openpaths set.
-                    } else if (startTransition.getStartStateID().equals("S0")) {
-                        openpaths.add(newPath);
-                    // Else add the path to the intermediatepaths set.
-                    } else {
-                        intermediatepaths.add(newPath);
-                    }
+                int nextend = graph.getTransitionEnd(j);
+                // Add a new path by concatenating the path of the start transition with the path of the next transition.
+                CyclePath newPath = new CyclePath(
+                        CycleGraph.stateCode(start),
+                        CycleGraph.transitionCode(i),
+                        CycleGraph.stateCode(end),
+                        CycleGraph.transitionCode(j),
+                        CycleGraph.stateCode(nextend)
+                );
+                // If the path starts and ends with the initial state "S0", add it to the generatedcycles set.
+                if (start == CycleGraph.STARTSTATE && nextend == CycleGraph.STARTSTATE) {
+                    addCycle(newPath);
+                // Else if only the path starts with the initial state "S0", add it to the openpaths set.
+                } else if (start == CycleGraph.STARTSTATE) {
+                    openpaths.add(newPath);
+                // Else add the path to the intermediatepaths set.
+                } else {
+                    intermediatepaths.add(newPath);
                 }
             }
         }
+        indexIntermediatePaths();
+    }
+
+    /**
+     * Buckets the intermediate paths by the index of their start state.
+     */
+    private void indexIntermediatePaths() {
+        int[] counts = new int[graph.getStateCount()];
+        for (CyclePath path : intermediatepaths) {
+            counts[CycleGraph.stateOfCode(path.first())]++;
+        }
+        intermediateindex = new CyclePath[counts.length][];
+        for (int state = 0; state < counts.length; state++) {
+            intermediateindex[state] = new CyclePath[counts[state]];
+            counts[state] = 0;
+        }
+        for (CyclePath path : intermediatepaths) {
+            int state = CycleGraph.stateOfCode(path.first());
+            intermediateindex[state][counts[state]++] = path;
+        }
     }
     
+    /**
+     * Adds a generated cycle. A new cycle is passed to the cycle sink of a streaming run
+     * right away, converted into the IDs to test.
+     *
+     * @param cycle CyclePath - The cycle, starting and ending with the initial state "S0".
+     */
+    private void addCycle(CyclePath cycle) {
+        if (generatedcyles.add(cycle) && cyclesink != null) {
+            cyclesink.accept(convertCombinatorialTransition(cycle));
+        }
+    }
+
     /**
      * Finds the longest path starting from a given state.
      *
      * This method initializes a depth-first search (DFS) to traverse the graph
      * and calculate the maximum depth of transitions starting from the
-     * specified state ID.
+     * specified state.
      *
-     * @param startID String - The ID of the starting state for the path search.
+     * @param start int - The index of the starting state for the path search.
      * @return int - The maximum depth of transitions from the given starting state.
      */
-    public int findLongestPath(String startID) {
-        Set<String> visited = new HashSet<>();
-        depthFirstSearch(startID, visited, 0);
+    public int findLongestPath(int start) {
+        maxdepth = 0;
+        boolean[] visited = new boolean[graph.getStateCount()];
+        int[] seen = new int[graph.getStateCount()];
+        depthFirstSearch(start, visited, seen, new int[] {0}, 0);
         return maxdepth;
     }
     
@@ -165,40 +201,45 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * Data Structures and Algorithms in Java (6th ed.). John Wiley & Sons. 
      * ISBN: 978-1-118-80857-3.
      * 
-     * - Traverses the graph starting from the given state (`currentID`) to
+     * - Traverses the graph starting from the given state (`current`) to
      * determine the maximum depth of transitions. - Uses a recursive approach
      * to explore all possible paths, keeping track of visited states to avoid
      * infinite loops.
      *
      * Parameters:
      *
-     * @param currentID The ID of the current state being visited.
-     * @param visited A set of state IDs that have already been visited during
+     * @param current The index of the current state being visited.
+     * @param visited The states that have already been visited during
      * this recursive call to prevent revisiting.
+     * @param seen Stamp of the call that last explored a state, so parallel
+     * transitions to the same state are explored once per call.
+     * @param stamp Counter of the calls, used for the stamps.
      * @param currentdepth The current depth of the traversal.
      *
-     * Method Details: 1. Adds the current state ID to the `visited` set to mark
-     * it as visited. 2. Updates `maxdepth` by comparing the current depth with
-     * the previously recorded maximum depth. 3. Iterates through all graph
-     * elements in `transitiongraphelementList`: - If a transition starts at the
-     * `currentID` and leads to an unvisited state, recursively calls
-     * `depthFirstSearch` for that next state. 4. Removes the `currentID` from
-     * the `visited` set before returning (backtracking) to allow other paths to
-     * be explored.
+     * Method Details: 1. Marks the current state as visited. 2. Updates
+     * `maxdepth` by comparing the current depth with the previously recorded
+     * maximum depth. 3. Iterates through the transitions leaving the current
+     * state (CSR adjacency of `graph`): - If a transition leads to an unvisited
+     * state, recursively calls `depthFirstSearch` for that next state. 4.
+     * Unmarks the current state before returning (backtracking) to allow other
+     * paths to be explored. The search stops once a path through all the
+     * states has been found, as no path can be longer.
      * 
      * @see <a href="https://en.wikipedia.org/wiki/Depth-first_search">Wikipedia: Depth-First Search</a>
      * @see <a href="https://www.geeksforgeeks.org/depth-first-search-or-dfs-for-a-graph/">GeeksforGeeks: Depth First Search</a>
      */
-    private void depthFirstSearch(String currentID, Set<String> visited, int currentdepth) {
-        visited.add(currentID);
+    private void depthFirstSearch(int current, boolean[] visited, int[] seen, int[] stamp, int currentdepth) {
+        visited[current] = true;
         maxdepth = Math.max(maxdepth, currentdepth);
-        for (GraphElement graphelement : transitiongraphelementList) {
-            Transition transition = (Transition) graphelement;
-            if (transition.getStartStateID().equals(currentID) && !visited.contains(transition.getEndStateID())) {
-                depthFirstSearch(transition.getEndStateID(), visited, currentdepth + 1);
+        int mystamp = ++stamp[0];
+        for (int k = graph.getOutStart(current); k < graph.getOutEnd(current) && maxdepth < visited.length - 1; k++) {
+            int next = graph.getTransitionEnd(graph.getOutTransition(k));
+            if (!visited[next] && seen[next] != mystamp) {
+                seen[next] = mystamp;
+                depthFirstSearch(next, visited, seen, stamp, currentdepth + 1);
             }
         }
-        visited.remove(currentID); 
+        visited[current] = false; 
     }
 
     /**
@@ -206,63 +247,122 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
     *
     * This method processes the existing set of generated paths and combines them with 
     * next-level paths to create new paths. It categorizes these new paths into:
-    * 1. **Cycles (`newInitialCycles`)** - Paths that start and end with the initial state "S0".
-    * 2. **Paths (`newInitialPaths`)** - Paths that start with "S0" but do not form a cycle.
+    * 1. **Cycles** - Paths that start and end with the initial state "S0", added to `generatedcycles` at the end of each level.
+    * 2. **Paths** - Paths that start with "S0" but do not form a cycle, the open paths of the next level.
     *
-    * The method uses recursion to process paths up to a specified maximum depth + 1 (`maxdepth`).
+    * The method processes the levels in a loop, up to a specified maximum depth + 1 (`maxdepth`).
+    * The join of a level is partitioned over the open paths and run on the common `ForkJoinPool`
+    * (see `JoinTask`); the partial results are merged at the end of the level.
     *
-    * @param maxdepth int - The maximum depth for recursively generating and categorizing paths.
+    * @param maxdepth int - The maximum depth for generating and categorizing paths.
 
  Logic:
  1. **Iteration through existing paths:**
     - Combines each path (`iteratorpath`) with every second-level path (`firstlevelpath`) 
-      if the end of `iteratorpath` matches the start of `firstlevelpath`.
-    - Avoids redundant loops by calling `checkLoops` on the combined path.
+      starting at the end of `iteratorpath`, looked up in `intermediateindex`.
+    - Avoids redundant loops by calling `checkNewLoops` on the combined path (same result as `checkLoops`).
 
  2. **Cycle Detection:**
     - Extracts cycles using `extractTestCycleFromPath`, focusing on paths that start and end with "S0".
 
  3. **Categorization:**
-    - If a path forms a cycle, it is added to `newInitialCycles`.
-    - Otherwise, if it starts with "S0", it is added to `newInitialPaths`.
+    - If a path forms a cycle, it is added to the cycles of the level.
+    - Otherwise, if it starts with "S0", it is added to the paths of the level.
 
  4. **Updating Generated Sets:**
-    - Adds the new cycles and paths to the respective sets (`generatedcycles` and `openpaths`).
+    - Adds the cycles of the level with `addCycle`, the paths of the level replace `openpaths`.
 
- 5. **Recursion:**
-    - Decreases `maxdepth + 1` by 1 and recursively calls the method to process further levels.
+ 5. **Next level:**
+    - Repeats for `maxdepth + 1` levels, or until there are no open paths left.
 
  Notes:
  - Removes processed paths from `openpaths` to avoid re-processing.
  - Ensures no redundant loops are included in the generated paths.
     */
     public void generateAndCategorizeNextPaths(int maxdepth) {  
-        Set<List<String>> newInitialCycles = new HashSet<>();
-        Set<List<String>> newInitialPaths = new HashSet<>();
-        Iterator<List<String>> iterator = openpaths.iterator();
-        while (iterator.hasNext()) {
-            List<String> iteratorpath = iterator.next();
-            for (List<String> firstlevelpath : intermediatepaths) {
-                if (iteratorpath.get(iteratorpath.size() - 1).equals(firstlevelpath.get(0))) {
-                    List<String> combinedPath = new ArrayList<>(iteratorpath);
-                    combinedPath.addAll(firstlevelpath.subList(1, firstlevelpath.size()));
-                    if (!checkLoops(combinedPath)) {
-                        List<String> cycle = extractTestCycleFromPath(combinedPath,"S0");
+        for (int level = maxdepth; level >= 0 && !openpaths.isEmpty(); level--) {
+            CyclePath[] iteratorpaths = openpaths.toArray(new CyclePath[0]);
+            openpaths.clear();
+            JoinResult result = ForkJoinPool.commonPool().invoke(new JoinTask(iteratorpaths, 0, iteratorpaths.length));
+            for (CyclePath cycle : result.cycles) {
+                addCycle(cycle);
+            }
+            openpaths = result.paths;
+        }
+    }
+
+    /**
+     * Class: JoinResult
+     *
+     * Purpose: The cycles and the open paths found by a `JoinTask`.
+     */
+    private static class JoinResult {
+        private Set<CyclePath> cycles = new HashSet<>(); // Paths that start and end with "S0".
+        private Set<CyclePath> paths = new HashSet<>(); // Paths that start with "S0" but do not form a cycle.
+
+        // Merges two results, adding the smaller sets into the larger ones.
+        private JoinResult merge(JoinResult other) {
+            cycles = union(cycles, other.cycles);
+            paths = union(paths, other.paths);
+            return this;
+        }
+
+        private static Set<CyclePath> union(Set<CyclePath> set1, Set<CyclePath> set2) {
+            if (set1.size() < set2.size()) {
+                set2.addAll(set1);
+                return set2;
+            }
+            set1.addAll(set2);
+            return set1;
+        }
+    }
+
+    /**
+     * Class: JoinTask
+     *
+     * Purpose: Joins a range of the open paths of a level with the intermediate paths starting at their last state.
+     * Ranges larger than `JOIN_THRESHOLD` open paths are split in two halves joined in parallel.
+     */
+    private class JoinTask extends RecursiveTask<JoinResult> {
+        private static final long serialVersionUID = 1L;
+        private final CyclePath[] iteratorpaths; // Open paths of the level.
+        private final int from; // First open path of the range (inclusive).
+        private final int to; // Last open path of the range (exclusive).
+
+        private JoinTask(CyclePath[] iteratorpaths, int from, int to) {
+            this.iteratorpaths = iteratorpaths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected JoinResult compute() {
+            if (to - from > JOIN_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                JoinTask first = new JoinTask(iteratorpaths, from, middle);
+                JoinTask second = new JoinTask(iteratorpaths, middle, to);
+                first.fork();
+                JoinResult result = second.compute();
+                return result.merge(first.join());
+            }
+            JoinResult result = new JoinResult();
+            for (int i = from; i < to; i++) {
+                CyclePath iteratorpath = iteratorpaths[i];
+                for (CyclePath firstlevelpath : intermediateindex[CycleGraph.stateOfCode(iteratorpath.last())]) {
+                    int[] combinedPath = iteratorpath.join(firstlevelpath);
+                    int looprun = checkNewLoops(iteratorpath, combinedPath);
+                    if (looprun >= 0) {
+                        int[] cycle = extractTestCycleFromPath(combinedPath, CycleGraph.STARTSTATECODE);
                         if (cycle != null) {
-                            newInitialCycles.add(cycle);
-                        } else if (combinedPath.get(0).equals("S0")) {
-                            newInitialPaths.add(combinedPath);
+                            result.cycles.add(new CyclePath(cycle));
+                        } else if (combinedPath[0] == CycleGraph.STARTSTATECODE) {
+                            result.paths.add(new CyclePath(combinedPath, getTripleLoopBlockSize(combinedPath.length) - 1, looprun));
                         }
                     }
                 }
             }
-            iterator.remove();
+            return result;
         }
-        generatedcyles.addAll(newInitialCycles);
-        openpaths.addAll(newInitialPaths);
-        if (maxdepth != 0) {
-            generateAndCategorizeNextPaths(maxdepth - 1);
-        } 
     }
     
     /**
@@ -270,25 +370,22 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * specified state.
      *
      * This method identifies and returns a cycle of the path, 
-     * starting and ending at the specified `stateID`. If no such cycle
+     * starting and ending at the specified state. If no such cycle
      * exists, the method returns `null`.
      *
-     * @param path List<String> - The path from which the cycle is to be
+     * @param path int[] - The path from which the cycle is to be
      * extracted.
-     * @param stateID String - The ID of the state where the cycle should start
+     * @param statecode int - The code of the state where the cycle should start
      * and end.
-     * @return List<String> - A list representing the extracted cycle if found,
-     * otherwise null.
+     * @return int[] - The extracted cycle if found, otherwise null.
      */
-    public List<String> extractTestCycleFromPath(List<String> path, String stateID) {
-        if (path == null || path.isEmpty() || !path.get(0).equals(stateID)) {
+    public int[] extractTestCycleFromPath(int[] path, int statecode) {
+        if (path == null || path.length == 0 || path[0] != statecode) {
             return null;
         }
-        List<String> cycle = new ArrayList<>();
-        for (String element : path) {
-            cycle.add(element);
-            if (cycle.size() > 1 && element.equals(stateID)) {
-                return cycle;
+        for (int i = 1; i < path.length; i++) {
+            if (path[i] == statecode) {
+                return Arrays.copyOf(path, i + 1);
             }
         }
         return null;
@@ -299,7 +396,7 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * [S1, T1, S1, T1, S1]. Example: The sequence [S1, T1, S1] must not repeat
      * consecutively within the list.
      *
-     * @param list List<String> - The list containing nodes and transitions to
+     * @param list int[] - The path containing nodes and transitions to
      * check for repeating patterns.
      * @param blocksize int - The number of consecutive elements (nodes and
      * transitions) to compare as a block. Example: For a blocksize of 3, the
@@ -308,18 +405,16 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * @return boolean - Returns true if a repeating self-loop pattern is
      * detected, otherwise returns false.
      */
-    public boolean compareFirstBlockWithNext(List<String> list, int blocksize) {
+    public boolean compareFirstBlockWithNext(int[] list, int blocksize) {
         // Check list size 
-        if (list.size() < blocksize * 2 - 2) {
+        if (list.length < blocksize * 2 - 2) {
             return false;
         }
         // Iterate over the path using the specified blocksize (3 in this case).
         // Each iteration compares two consecutive blocks of the given blocksize.
         // The next block starts at the end node of the previous block.
-        for (int i = 0; i <= list.size() - (blocksize * 2) + 2; i += 2) {
-            List<String> firstBlock = list.subList(i, i + blocksize);
-            List<String> secondBlock = list.subList(i + blocksize - 1, i + (blocksize * 2) - 1);
-            if (firstBlock.equals(secondBlock)) {
+        for (int i = 0; i <= list.length - (blocksize * 2) + 2; i += 2) {
+            if (Arrays.equals(list, i, i + blocksize, list, i + blocksize - 1, i + (blocksize * 2) - 1)) {
                 return true;
             }
         }
@@ -345,7 +440,7 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      *
      * Parameters:
      *
-     * @param list List<String> - The list of elements (nodes and transitions)
+     * @param list int[] - The path of elements (nodes and transitions)
      * to check for repeating patterns.
      * @param blocksize int - The size of the block (number of consecutive
      * elements) to compare.
@@ -359,19 +454,17 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * @return boolean - Returns true if the list contains a block that repeats
      * itself three times consecutively; otherwise, false.
      */
-    public boolean compareFirstBlockWithNextTwo(List<String> list, int blocksize) {
+    public boolean compareFirstBlockWithNextTwo(int[] list, int blocksize) {
         // Check list size 
-        if (list.size() < blocksize * 3 - 2) {
+        if (list.length < blocksize * 3 - 2) {
             return false;
         }
         // Iterate over the path, growing the blocksize with each iteration.
         // Each iteration compares three consecutive blocks of increasing size.
-        for (int i = 0; i <= list.size() - (blocksize * 3) + 2; i += 2) {
-            List<String> firstblock = list.subList(i, i + blocksize);
-            List<String> secondblock = list.subList(i + blocksize - 1, i + (blocksize * 2) - 1);
-            List<String> thirdblock = list.subList(i + (blocksize * 2) - 2, i + (blocksize * 3) - 2);
+        for (int i = 0; i <= list.length - (blocksize * 3) + 2; i += 2) {
             // Compare the three blocks for equality.
-            if (firstblock.equals(secondblock) && firstblock.equals(thirdblock)) {
+            if (Arrays.equals(list, i, i + blocksize, list, i + blocksize - 1, i + (blocksize * 2) - 1)
+                    && Arrays.equals(list, i, i + blocksize, list, i + (blocksize * 2) - 2, i + (blocksize * 3) - 2)) {
                 return true;
             }
         }
@@ -391,7 +484,7 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * based on the path length and checks if exactly three consecutive
      * identical loops exist. These are considered invalid.
      *
-     * @param list List<String> - The list representing the path to be checked.
+     * @param list int[] - The path to be checked.
      * @return boolean - Returns true if an invalid loop pattern is found,
      * otherwise false.
      *
@@ -405,116 +498,151 @@ public class CycleGeneratorAlgorithm implements CycleGeneratorStrategy{
      * `compareFirstBlockWithNextTwo` to verify if exactly three consecutive
      * loops exist. - Returns `true` if this pattern is detected.
      */
-    public boolean checkLoops(List<String> list) {
+    public boolean checkLoops(int[] list) {
         // Check for self loops example.
         if (compareFirstBlockWithNext(list, MIN_PATH_SIZE)) {
             return true;
         } // Calculates the block size to compare.
         // Checks if there are exactly three consecutive loops, which are not allowed (maximum of two is permitted).
         else {
-            int result = (list.size() - MIN_LOOP_SIZE_FOR_TRIPLE_LOOP) / NEXT_LOOP_FACTOR_FOR_TRIPLE_LOOP;
-            return (compareFirstBlockWithNextTwo(list, (MIN_LOOP_SIZE + NEXT_LOOP_FACTOR * result)));
+            return (compareFirstBlockWithNextTwo(list, getTripleLoopBlockSize(list.length)));
         }
     }
 
     /**
- * Converts combinatorial transitions in the given path into sequential transitions.
- *
- * Processes a path containing transition IDs and replaces transitions 
- * of type `CombinatorialTransition` (with IDs starting with "c") by their corresponding 
- * sequential transitions. The resulting path includes the sequential transitions 
- * and their associated state.
- *
- * @param path List<String> - The path containing transition IDs to be processed.
- * @return List<String> - The updated path where combinatorial transitions are replaced 
- *                        by their sequential counterparts.
- *
- * Logic:
- * 1. Creates a copy of the input path to store the transformed result.
- * 2. Iterates through the path to identify combinatorial transitions:
- *    - Checks if a transition ID starts with "c".
- *    - If found, retrieves the corresponding `CombinatorialTransition` from 
- *      `transitiongraphelementList` and obtains its sequential transitions using 
- *      `getSequentialTransitionsToTest()`.
- * 3. Replaces the combinatorial transition in the path:
- *    - Removes the combinatorial transition ID.
- *    - Adds sequential transition IDs and their end states (if applicable) in its place.
- * 4. Returns the updated path.
- *
- */
-    public List<String> convertCombinatorialTransition(List<String> path) {
-        List<String> result = new ArrayList<>(path);
-        ListIterator<String> iterator = result.listIterator();
-        List<SequentialTransition> sequentialTransitionToTest = new ArrayList<>();
-        while (iterator.hasNext()) {
-            String current = iterator.next();
-            for (GraphElement graphElement : transitiongraphelementList) {
-                if (graphElement instanceof CombinatorialTransition) {
-                    CombinatorialTransition combinatorialTransition = (CombinatorialTransition) graphElement;
-                    if (combinatorialTransition.getTransitionID().equals(current)) {
-                        sequentialTransitionToTest = combinatorialTransition.getSequentialTransitionsToTest();
-                    }
-                }
+     * Calculates the block size of the triple loop check for a path size.
+     *
+     * @param size int - The size of the path.
+     * @return int - The block size: `MIN_LOOP_SIZE + NEXT_LOOP_FACTOR * result`.
+     */
+    private static int getTripleLoopBlockSize(int size) {
+        int result = (size - MIN_LOOP_SIZE_FOR_TRIPLE_LOOP) / NEXT_LOOP_FACTOR_FOR_TRIPLE_LOOP;
+        return MIN_LOOP_SIZE + NEXT_LOOP_FACTOR * result;
+    }
+
+    /**
+     * Checks for invalid loops in a path extended from a path without invalid loops,
+     * looking only at the new elements. Gives the same result as `checkLoops` on the
+     * extended path.
+     *
+     * Logic:
+     * - **Self-loop Check:** Only the pairs of blocks ending in the new elements are compared.
+     * - **Triple Loop Check:** Three consecutive identical blocks of size `b` starting at
+     *   `i` are the elements from `i` to `i + 3b - 3` repeating with period `p = b - 1`:
+     *   `path[k] == path[k + p]` for `2p + 1` consecutive positions `k` from `i`. The number of
+     *   consecutive matching positions at the end of the path (the loop run) is kept with
+     *   the path, so an extension only compares the positions of its new elements. When the
+     *   block size changes with the size of the path, the run is counted again from the start.
+     *
+     * @param path CyclePath - The path that has been extended (without invalid loops).
+     * @param list int[] - The extended path.
+     * @return int - The loop run of the extended path, or -1 if an invalid loop pattern is found.
+     */
+    public int checkNewLoops(CyclePath path, int[] list) {
+        int oldsize = path.size();
+        // Self loops: pairs of blocks ending in the new elements.
+        int start = Math.max(0, oldsize - (MIN_PATH_SIZE * 2) + 2);
+        start += start & 1;
+        for (int i = start; i <= list.length - (MIN_PATH_SIZE * 2) + 2; i += 2) {
+            if (Arrays.equals(list, i, i + MIN_PATH_SIZE, list, i + MIN_PATH_SIZE - 1, i + (MIN_PATH_SIZE * 2) - 1)) {
+                return -1;
             }
-            if (current.startsWith("c")) {
-                iterator.remove();
-                List<String> newItems = new ArrayList<>();
-                for (int i = 0; i < sequentialTransitionToTest.size(); i++) {
-                    if (i == sequentialTransitionToTest.size() - 1) {
-                        newItems = List.of(sequentialTransitionToTest.get(i).getTransitionID());
-                    } else {
-                        newItems = List.of(
-                                sequentialTransitionToTest.get(i).getTransitionID(),
-                                sequentialTransitionToTest.get(i).getEndStateID()
-                        );
-                    }
-                    for (String newItem : newItems) {
-                        iterator.add(newItem);
-                    }
-                }
+        }
+        // Triple loops: continue the loop run of the path, or count it again for a new block size.
+        int period = getTripleLoopBlockSize(list.length) - 1;
+        int run = 0;
+        int k = 0;
+        if (period == path.getLoopPeriod()) {
+            run = path.getLoopRun();
+            k = Math.max(0, oldsize - period);
+        }
+        for (; k + period < list.length; k++) {
+            run = (list[k] == list[k + period]) ? run + 1 : 0;
+            // Three blocks end at `k + period`: they start at an even position within the run.
+            if (run > period * 2 && (run > period * 2 + 1 || ((k - period * 2) & 1) == 0)) {
+                return -1;
             }
         }
-        return result;
+        return run;
     }
 
     /**
-     * Processes generated cycles by converting combinatorial transitions into
-     * sequential transitions.
+ * Converts a path of the graph into the IDs to test.
+ *
+ * A transition of type `CombinatorialTransition` stays one element of the path: its
+ * sequential transitions to test are only expanded by the test as it runs the path,
+ * so a path does not hold an ID per combination (see `CycleGraph.toList`).
+ *
+ * @param path CyclePath - The path to be processed.
+ * @return List<String> - The IDs of the path.
+ */
+    public List<String> convertCombinatorialTransition(CyclePath path) {
+        return graph.toList(path);
+    }
+
+    /**
+     * Processes generated cycles by converting them into the IDs to test.
      *
      * Clears the current list of cycles to test (`generatedcylesToTest`) and
      * processes all generated cycles (`generatedcyles`). Each cycle is
-     * transformed by replacing combinatorial transitions with their
-     * corresponding sequential transitions. The updated cycles are then added
+     * converted back to IDs (see `convertCombinatorialTransition`). The cycles are then added
      * to `generatedcylesToTest` for further testing or processing.
      *
      */
     public void processCycles() {
         generatedcylesToTest.clear();     
-        for (List<String> path : generatedcyles) {
-            List<String> convertedPath = convertCombinatorialTransition(path);
-            generatedcylesToTest.add(convertedPath);
+        for (CyclePath path : generatedcyles) {
+            generatedcylesToTest.add(convertCombinatorialTransition(path));
         }
     } 
 
-    // Strategy for generating sequential and combinatorial test cycles.
-    @Override
-    public Set<List<String>> generateCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
+    /**
+     * Generates the cycles of a model: builds the graph of the run and generates the paths
+     * level by level. The paths of the run are released at the end, only `generatedcyles` is kept.
+     *
+     * @param stategraphelementList List<GraphElement> - A list of state graph elements.
+     * @param transitiongraphelementList List<GraphElement> - A list of transition graph elements.
+     */
+    private void runGeneration(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
         this.intermediatepaths.clear();
         this.openpaths.clear();
         this.generatedcyles.clear();
-        this.generatedcylesToTest.clear();
         this.stategraphelementList = stategraphelementList;
         this.transitiongraphelementList = transitiongraphelementList;
+        this.graph = new CycleGraph(transitiongraphelementList);
         generateAndCategorizeFirstPaths();
-        generateAndCategorizeNextPaths(findLongestPath("S0"));
+        generateAndCategorizeNextPaths(findLongestPath(CycleGraph.STARTSTATE));
+        this.intermediatepaths.clear();
+        this.intermediateindex = null;
+        this.openpaths.clear();
+    }
+
+    // Strategy for generating sequential and combinatorial test cycles.
+    @Override
+    public Set<List<String>> generateCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
+        this.generatedcylesToTest = new HashSet<>();
+        runGeneration(stategraphelementList, transitiongraphelementList);
         processCycles();
+        this.generatedcyles.clear();
         return generatedcylesToTest;
     }
+
+    /**
+     * Streams the test cycles while they are generated: each cycle is streamed as soon as it
+     * is found, so the test can start before the deepest levels are expanded. The generation
+     * runs on its own instance, so this instance can still be used meanwhile.
+     *
+     * @param stategraphelementList List<GraphElement> - A list of state graph elements.
+     * @param transitiongraphelementList List<GraphElement> - A list of transition graph elements.
+     * @return CycleStream - The test cycles, each streamed once.
+     */
+    @Override
+    public CycleStream streamCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
+        return new CycleStream(sink -> {
+            CycleGeneratorAlgorithm run = new CycleGeneratorAlgorithm();
+            run.cyclesink = sink;
+            run.runGeneration(stategraphelementList, transitiongraphelementList);
+            run.generatedcyles.clear();
+        });
+    }
 }
-    
-    
-    
-    
-    
-    
-    
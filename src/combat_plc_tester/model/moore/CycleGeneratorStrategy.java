@@ -29,4 +29,37 @@ public interface CycleGeneratorStrategy {
      * @return Set<List<String>> - A set of categorized test cycles.
      */
     Set<List<String>> generateCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList);
+
+    /**
+     * Generates the test cycles on a background thread and streams them while they are generated.
+     * Each cycle is returned once. By default the cycles are streamed once `generateCycles` has
+     * generated all of them; strategies that find cycles incrementally stream them as they are found.
+     *
+     * @param stategraphelementList List<GraphElement> - A list of state graph elements.
+     * @param transitiongraphelementList List<GraphElement> - A list of transition graph elements.
+     * @return CycleStream - The test cycles, to be closed when not consumed up to the end.
+     */
+    default CycleStream streamCycles(List<GraphElement> stategraphelementList, List<GraphElement> transitiongraphelementList) {
+        return new CycleStream(sink -> generateCycles(stategraphelementList, transitiongraphelementList).forEach(sink));
+    }
+
+    /**
+     * Returns the coverage achieved by the last generated test cycles, for strategies
+     * that select the cycles to cover the model.
+     *
+     * @return String - The coverage report, or null if the strategy does not report coverage.
+     */
+    default String getCoverageReport() {
+        return null;
+    }
+
+    /**
+     * Returns the options of the strategy that change the generated cycles. They are part
+     * of the fingerprint of cached cycles (see `CycleCache`).
+     *
+     * @return String - The options, empty if the strategy has none.
+     */
+    default String getOptions() {
+        return "";
+    }
 }
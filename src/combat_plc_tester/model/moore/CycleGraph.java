@@ -0,0 +1,166 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class: CycleGraph
+ *
+ * Purpose: Compact, integer-indexed view of the transitions of the model, built once
+ * per cycle generation run.
+ *
+ * - State and transition IDs are interned to integers. The start state "S0" is always state 0.
+ * - The transitions leaving a state are stored in CSR form (compressed sparse rows):
+ *   the transitions leaving state `s` are `outtransitions[outoffsets[s]]` up to
+ *   `outtransitions[outoffsets[s + 1] - 1]`.
+ * - Path elements are encoded as codes: state `s` has code `2 * s`, transition `t`
+ *   has code `2 * t + 1`, so a path is an `int[]` and two paths are equal when their
+ *   codes are equal.
+ * - A path is converted back into IDs with `toList`. A combinatorial transition stays one
+ *   element of the path, the test expands it into its combinations as it runs.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class CycleGraph {
+
+    // Index of the start state "S0".
+    public static final int STARTSTATE = 0;
+    // Code of the start state "S0" in a path.
+    public static final int STARTSTATECODE = 0;
+
+    private final String[] statenames; // State IDs by state index.
+    private final String[] transitionnames; // Transition IDs by transition index.
+    private final int[] transitionstarts; // Start state of each transition.
+    private final int[] transitionends; // End state of each transition.
+    private final int[] outoffsets; // CSR row offsets, one more than the number of states.
+    private final int[] outtransitions; // CSR transitions, grouped by start state.
+
+    /**
+     * Builds the graph from the transitions of the model.
+     *
+     * @param transitiongraphelementList List<GraphElement> - The transition graph elements.
+     */
+    public CycleGraph(List<GraphElement> transitiongraphelementList) {
+        Map<String, Integer> stateindexes = new HashMap<>();
+        List<String> states = new ArrayList<>();
+        stateindexes.put("S0", STARTSTATE);
+        states.add("S0");
+        int transitioncount = transitiongraphelementList.size();
+        transitionnames = new String[transitioncount];
+        transitionstarts = new int[transitioncount];
+        transitionends = new int[transitioncount];
+        for (int t = 0; t < transitioncount; t++) {
+            Transition transition = (Transition) transitiongraphelementList.get(t);
+            transitionnames[t] = transition.getTransitionID();
+            transitionstarts[t] = intern(transition.getStartStateID(), stateindexes, states);
+            transitionends[t] = intern(transition.getEndStateID(), stateindexes, states);
+        }
+        statenames = states.toArray(new String[0]);
+        // CSR adjacency: count the transitions per start state, then place them in list order.
+        outoffsets = new int[statenames.length + 1];
+        for (int t = 0; t < transitioncount; t++) {
+            outoffsets[transitionstarts[t] + 1]++;
+        }
+        for (int s = 0; s < statenames.length; s++) {
+            outoffsets[s + 1] += outoffsets[s];
+        }
+        outtransitions = new int[transitioncount];
+        int[] next = new int[statenames.length];
+        for (int t = 0; t < transitioncount; t++) {
+            int s = transitionstarts[t];
+            outtransitions[outoffsets[s] + next[s]++] = t;
+        }
+    }
+
+    private static int intern(String stateID, Map<String, Integer> stateindexes, List<String> states) {
+        Integer index = stateindexes.get(stateID);
+        if (index == null) {
+            index = states.size();
+            stateindexes.put(stateID, index);
+            states.add(stateID);
+        }
+        return index;
+    }
+
+    public int getStateCount() {
+        return statenames.length;
+    }
+
+    public int getTransitionCount() {
+        return transitionnames.length;
+    }
+
+    public int getTransitionStart(int transition) {
+        return transitionstarts[transition];
+    }
+
+    public int getTransitionEnd(int transition) {
+        return transitionends[transition];
+    }
+
+    /**
+     * Returns the position of the first transition leaving a state in `getOutTransition`.
+     *
+     * @param state int - The state index.
+     * @return int - The first position (inclusive).
+     */
+    public int getOutStart(int state) {
+        return outoffsets[state];
+    }
+
+    /**
+     * Returns the position after the last transition leaving a state in `getOutTransition`.
+     *
+     * @param state int - The state index.
+     * @return int - The last position (exclusive).
+     */
+    public int getOutEnd(int state) {
+        return outoffsets[state + 1];
+    }
+
+    public int getOutTransition(int position) {
+        return outtransitions[position];
+    }
+
+    public static int stateCode(int state) {
+        return state << 1;
+    }
+
+    public static int transitionCode(int transition) {
+        return (transition << 1) | 1;
+    }
+
+    public static int stateOfCode(int code) {
+        return code >> 1;
+    }
+
+    /**
+     * Returns the ID of a path element.
+     *
+     * @param code int - The code of a state or a transition.
+     * @return String - The state or transition ID.
+     */
+    public String getName(int code) {
+        return ((code & 1) == 0) ? statenames[code >> 1] : transitionnames[code >> 1];
+    }
+
+    /**
+     * Converts a path of codes into the list of state and transition IDs.
+     *
+     * @param path CyclePath - The path.
+     * @return List<String> - The IDs of the elements of the path.
+     */
+    public List<String> toList(CyclePath path) {
+        List<String> list = new ArrayList<>(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            list.add(getName(path.get(i)));
+        }
+        return list;
+    }
+}
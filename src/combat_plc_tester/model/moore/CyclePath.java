@@ -0,0 +1,103 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import java.util.Arrays;
+
+/**
+ * Class: CyclePath
+ *
+ * Purpose: Immutable path of a `CycleGraph`, stored as the codes of its alternating
+ * states and transitions. The hash is computed once, so paths are cheap to keep in
+ * hash sets. A path can carry the state of the loop check of `CycleGeneratorAlgorithm`,
+ * so the check of an extended path only looks at the new elements.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public final class CyclePath {
+
+    private final int[] elements; // Codes of the states and transitions of the path.
+    private final int hash; // Cached hash of the elements.
+    private final int loopperiod; // Period of the loop check state, -1 if unknown.
+    private final int looprun; // Loop check state: matching positions at the end of the path.
+
+    /**
+     * Creates a path; the array is owned by the path from now on.
+     *
+     * @param elements int[] - The codes of the elements of the path.
+     */
+    public CyclePath(int... elements) {
+        this(elements, -1, 0);
+    }
+
+    /**
+     * Creates a path with the state of its loop check; the array is owned by the path from now on.
+     *
+     * @param elements int[] - The codes of the elements of the path.
+     * @param loopperiod int - The period of the triple loop check for this path.
+     * @param looprun int - The number of consecutive positions `k`, ending at `size - 1 - loopperiod`,
+     * with `elements[k] == elements[k + loopperiod]`.
+     */
+    public CyclePath(int[] elements, int loopperiod, int looprun) {
+        this.elements = elements;
+        this.hash = Arrays.hashCode(elements);
+        this.loopperiod = loopperiod;
+        this.looprun = looprun;
+    }
+
+    public int size() {
+        return elements.length;
+    }
+
+    public int get(int index) {
+        return elements[index];
+    }
+
+    public int first() {
+        return elements[0];
+    }
+
+    public int last() {
+        return elements[elements.length - 1];
+    }
+
+    public int getLoopPeriod() {
+        return loopperiod;
+    }
+
+    public int getLoopRun() {
+        return looprun;
+    }
+
+    /**
+     * Joins a path to this one on their common state (the last state of this path is
+     * the first state of the other path).
+     *
+     * @param next CyclePath - The path to append.
+     * @return int[] - The elements of this path followed by the other path without its first state.
+     */
+    public int[] join(CyclePath next) {
+        int[] combined = Arrays.copyOf(elements, elements.length + next.elements.length - 1);
+        System.arraycopy(next.elements, 1, combined, elements.length, next.elements.length - 1);
+        return combined;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof CyclePath)) {
+            return false;
+        }
+        CyclePath other = (CyclePath) object;
+        return hash == other.hash && Arrays.equals(elements, other.elements);
+    }
+}
@@ -0,0 +1,187 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Class: CycleStream
+ *
+ * Purpose: Iterator over the test cycles of a model while they are being generated.
+ * The cycles are generated by a producer on a background thread and handed over through
+ * a bounded queue, so the test can start with the first cycles while the next ones are
+ * still being generated, and at most `QUEUECAPACITY` converted cycles wait in memory.
+ *
+ * - `hasNext()` blocks until the next cycle is generated or the generation ends.
+ * - A failure of the generation is rethrown by `hasNext()` once the cycles generated before it are consumed.
+ * - `close()` stops the generation, e.g. when the test stops before all cycles are consumed.
+ * - `isComplete()` tells a real end of the generation apart from an interrupt or a close.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class CycleStream implements Iterator<List<String>>, AutoCloseable {
+
+    // Maximum number of generated cycles waiting to be consumed.
+    public static final int QUEUECAPACITY = 256;
+    // Marks the end of the generation in the queue (compared by identity).
+    private static final List<String> END = new ArrayList<>();
+
+    private final BlockingQueue<List<String>> queue; // Generated cycles waiting to be consumed.
+    private final Thread producerthread; // Thread running the generation.
+    private volatile RuntimeException failure; // Failure of the generation, if any.
+    private volatile boolean closed; // Set when the consumer closes the stream.
+    private List<String> next; // Next cycle to return.
+    private boolean finished; // Set once the end of the generation is consumed.
+    private boolean complete; // Set once the end of a successful generation is consumed.
+
+    /**
+     * Interface: Producer
+     *
+     * Purpose: Generates the cycles, passing each cycle once to the sink as soon as it is generated.
+     */
+    public interface Producer {
+        void produce(Consumer<List<String>> sink);
+    }
+
+    // Thrown through the producer when the stream is closed, to stop the generation.
+    private static class Cancelled extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Starts the generation of the cycles on a background thread.
+     *
+     * @param producer Producer - The generation of the cycles.
+     */
+    public CycleStream(Producer producer) {
+        this.queue = new ArrayBlockingQueue<>(QUEUECAPACITY);
+        this.producerthread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    producer.produce(cycle -> put(cycle));
+                } catch (Cancelled e) {
+                    return;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                try {
+                    put(END);
+                } catch (Cancelled e) {
+                    // Closed, nobody waits for the end.
+                }
+            }
+        }, "CycleGenerator");
+        this.producerthread.setDaemon(true);
+        this.producerthread.start();
+    }
+
+    private void put(List<String> cycle) {
+        if (closed) {
+            throw new Cancelled();
+        }
+        try {
+            queue.put(cycle);
+        } catch (InterruptedException e) {
+            throw new Cancelled();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            next = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = true;
+            return false;
+        }
+        if (next == END) {
+            next = null;
+            finished = true;
+            if (failure != null) {
+                throw failure;
+            }
+            complete = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> cycle = next;
+        next = null;
+        return cycle;
+    }
+
+    /**
+     * Returns the next cycles: waits for the next cycle like `next()`, then adds the cycles
+     * already generated without waiting for the generation of further cycles.
+     *
+     * @param max int - The maximum number of cycles to return.
+     * @return List<List<String>> - The next cycles, empty at the end of the generation.
+     */
+    public List<List<String>> nextBatch(int max) {
+        List<List<String>> batch = new ArrayList<>();
+        while (batch.size() < max && (batch.isEmpty() ? hasNext() : isGenerated())) {
+            batch.add(next());
+        }
+        return batch;
+    }
+
+    // Like hasNext(), without waiting: the end of the generation is left to hasNext().
+    private boolean isGenerated() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        List<String> generated = queue.peek();
+        if (generated == null || generated == END) {
+            return false;
+        }
+        next = queue.poll();
+        return true;
+    }
+
+    /**
+     * Returns whether all cycles have been consumed up to the end of a successful generation.
+     * A stream ended by an interrupt of the consumer, by `close()` or by a failure is not complete.
+     *
+     * @return boolean - true if the stream was consumed completely.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Stops the generation and releases the cycles waiting to be consumed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        next = null;
+        producerthread.interrupt();
+        queue.clear();
+    }
+}
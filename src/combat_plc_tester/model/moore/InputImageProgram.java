@@ -0,0 +1,179 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import combat_plc_tester.model.IO.Input;
+import combat_plc_tester.model.IO.InputBit;
+import combat_plc_tester.model.IO.InputByte;
+import combat_plc_tester.model.IO.InputDInt;
+import combat_plc_tester.model.IO.InputDWord;
+import combat_plc_tester.model.IO.InputInt;
+import combat_plc_tester.model.IO.InputReal;
+import combat_plc_tester.model.IO.InputWord;
+import Moka7.S7;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class: InputImageProgram
+ *
+ * Purpose: Precompiled encoder of the input image written to the PLC in a test run.
+ * The baseline image (every input at its initial value, from address 0 up to the
+ * highest input address) is encoded once. Each transition is compiled once into a
+ * `Patch`: the bytes it changes on top of the baseline, as offsets, bit masks and
+ * encoded values. Building the image of a transition is then an array copy of the
+ * baseline plus the patch, without boxing and without changing the model.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class InputImageProgram {
+
+    private final byte[] baseline; // Image with all the inputs at their initial value.
+
+    /**
+     * Class: Patch
+     *
+     * Purpose: The bytes a transition changes on top of the baseline image. Only the
+     * bits set in the mask of a byte are replaced by the bits of its value.
+     */
+    public static class Patch {
+
+        private final int[] offsets; // Offsets of the changed bytes (ascending).
+        private final byte[] masks; // Bits of each byte set by the transition.
+        private final byte[] values; // Encoded values of the bits set by the transition.
+
+        private Patch(int[] offsets, byte[] masks, byte[] values) {
+            this.offsets = offsets;
+            this.masks = masks;
+            this.values = values;
+        }
+
+        /**
+         * Applies the patch to an image.
+         *
+         * @param image byte[] - The image (a copy of the baseline).
+         */
+        public void apply(byte[] image) {
+            for (int i = 0; i < offsets.length; i++) {
+                image[offsets[i]] = (byte) ((image[offsets[i]] & ~masks[i]) | (values[i] & masks[i]));
+            }
+        }
+    }
+
+    /**
+     * Compiles the baseline image of the inputs of a test run.
+     *
+     * @param inputList List<Input> - The inputs of the test run.
+     */
+    public InputImageProgram(List<Input> inputList) {
+        int size = 0;
+        for (Input input : inputList) {
+            size = Math.max(size, input.getStartAddress() + getDataSize(input));
+        }
+        baseline = new byte[size];
+        for (Input input : inputList) {
+            encode(baseline, input.getStartAddress(), input, input.getInitialValue());
+        }
+    }
+
+    /**
+     * Determines the size of the data required for a specific input type.
+     *
+     * @param input Input - The input object for which the data size is to be determined.
+     * @return int - The size in bytes required for the given input type.
+     */
+    public static int getDataSize(Input input) {
+        if (input instanceof InputWord || input instanceof InputInt) return 2;
+        if (input instanceof InputDWord || input instanceof InputDInt || input instanceof InputReal) return 4;
+        return 1; // Bit, Byte
+    }
+
+    /**
+     * Encodes the value of an input into a buffer.
+     *
+     * @param buffer byte[] - The buffer.
+     * @param pos int - The position of the input in the buffer.
+     * @param input Input - The input (type and bit address).
+     * @param value Object - The value to encode.
+     */
+    private static void encode(byte[] buffer, int pos, Input input, Object value) {
+        if (input instanceof InputBit) {
+            S7.SetBitAt(buffer, pos, input.getBitAddress(), (boolean) value);
+        } else if (input instanceof InputByte) {
+            buffer[pos] = (byte) ((short) value & 0xFF);
+        } else if (input instanceof InputWord) {
+            S7.SetWordAt(buffer, pos, (int) value);
+        } else if (input instanceof InputDWord) {
+            S7.SetDWordAt(buffer, pos, (long) value);
+        } else if (input instanceof InputInt) {
+            S7.SetShortAt(buffer, pos, (short) value);
+        } else if (input instanceof InputDInt) {
+            S7.SetDIntAt(buffer, pos, (int) value);
+        } else if (input instanceof InputReal) {
+            S7.SetFloatAt(buffer, pos, (float) value);
+        }
+    }
+
+    /**
+     * Compiles the inputs of a transition into a patch over the baseline image.
+     * Inputs outside the image of the test run are not part of the patch.
+     *
+     * @param transition Transition - The transition to compile.
+     * @return Patch - The bytes the transition changes.
+     */
+    public Patch compile(Transition transition) {
+        // Offset -> {mask, value}, in address order.
+        TreeMap<Integer, byte[]> bytes = new TreeMap<>();
+        byte[] encoded = new byte[4];
+        for (Input input : transition.getInputs()) {
+            int size = getDataSize(input);
+            int start = input.getStartAddress();
+            if (start < 0 || start + size > baseline.length) {
+                continue;
+            }
+            // Encode the input at the start of a scratch buffer (bits keep their baseline neighbours).
+            System.arraycopy(baseline, start, encoded, 0, size);
+            encode(encoded, 0, input, input.getValue());
+            for (int i = 0; i < size; i++) {
+                byte mask = (input instanceof InputBit) ? (byte) (1 << input.getBitAddress()) : (byte) 0xFF;
+                byte[] maskvalue = bytes.computeIfAbsent(start + i, k -> new byte[2]);
+                maskvalue[0] |= mask;
+                maskvalue[1] = (byte) ((maskvalue[1] & ~mask) | (encoded[i] & mask));
+            }
+        }
+        int[] offsets = new int[bytes.size()];
+        byte[] masks = new byte[bytes.size()];
+        byte[] values = new byte[bytes.size()];
+        int i = 0;
+        for (Map.Entry<Integer, byte[]> entry : bytes.entrySet()) {
+            offsets[i] = entry.getKey();
+            masks[i] = entry.getValue()[0];
+            values[i] = entry.getValue()[1];
+            i++;
+        }
+        return new Patch(offsets, masks, values);
+    }
+
+    /**
+     * Builds the image of a transition: the baseline with the patch applied.
+     *
+     * @param patch Patch - The compiled transition.
+     * @param image byte[] - The image to build, at least as long as the baseline.
+     */
+    public void buildImage(Patch patch, byte[] image) {
+        System.arraycopy(baseline, 0, image, 0, baseline.length);
+        patch.apply(image);
+    }
+
+    /**
+     * Returns the size of the image (from address 0 up to the highest input address).
+     *
+     * @return int - The size of the image in bytes.
+     */
+    public int getImageSize() {
+        return baseline.length;
+    }
+}
@@ -0,0 +1,193 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import combat_plc_tester.model.IO.Output;
+import combat_plc_tester.model.IO.OutputBit;
+import combat_plc_tester.model.IO.OutputByte;
+import combat_plc_tester.model.IO.OutputDInt;
+import combat_plc_tester.model.IO.OutputDWord;
+import combat_plc_tester.model.IO.OutputInt;
+import combat_plc_tester.model.IO.OutputReal;
+import combat_plc_tester.model.IO.OutputWord;
+import Moka7.S7;
+import Moka7.S7Client;
+import Moka7.S7DataItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class: OutputReadPlan
+ *
+ * Purpose: Plans how the outputs of a test are read from the data block of the PLC.
+ * The plan is built once per test run. The byte ranges of the outputs are grouped
+ * into read items and the items are packed into the minimal number of multi-variable
+ * read telegrams that fit in the negotiated PDU. All the items read into one reusable
+ * buffer, each output is resolved by its offset in that buffer.
+ *
+ * Two ranges share one item when the gap between them is smaller than the overhead
+ * of a separate item (its var spec. in the request and its header in the reply),
+ * so the bytes of the gap are cheaper than another item.
+ *
+ * Telegram budget (S7 "read var" job):
+ * - Request: 12 bytes of header plus 12 bytes of var spec. per item.
+ * - Reply: 14 bytes of header plus 4 bytes and the data (padded to even) per item.
+ * - At most `S7Client.MaxVars` items per telegram.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class OutputReadPlan {
+
+    private static final int REQUESTHEADERSIZE = 12; // S7 header + function + items count
+    private static final int REQUESTITEMSIZE = 12; // Var spec. of one item
+    private static final int REPLYHEADERSIZE = 14; // S7 ack header + function + items count
+    private static final int REPLYITEMHEADERSIZE = 4; // Return code + transport size + length
+    private static final int ITEMOVERHEAD = REQUESTITEMSIZE + REPLYITEMHEADERSIZE; // Cost of a separate item
+
+    private final List<Output> outputList; // Outputs in the plan
+    private final List<S7DataItem[]> telegrams; // Read items grouped per telegram
+    private final int[] outputoffsets; // Offset of each output in the buffer (same index as outputList)
+    private byte[] buffer; // Buffer shared by all the read items
+
+    /**
+     * Builds the read plan for the given outputs.
+     *
+     * @param outputList List<Output> - The outputs to read.
+     * @param databuildingblocknumber int - The data block holding the outputs.
+     * @param pdulength int - The negotiated PDU length of the connection.
+     */
+    public OutputReadPlan(List<Output> outputList, int databuildingblocknumber, int pdulength) {
+        this.outputList = new ArrayList<>(outputList);
+        this.telegrams = new ArrayList<>();
+        this.outputoffsets = new int[outputList.size()];
+        List<S7DataItem> items = groupItems(databuildingblocknumber, pdulength);
+        packTelegrams(items, pdulength);
+    }
+
+    /**
+     * Determines the size of the data required for a specific output type.
+     *
+     * @param output Output - The output object for which the data size is to be determined.
+     * @return short - The size in bytes required for the given output type.
+     */
+    public static short getDataSize(Output output) {
+        if (output instanceof OutputBit) return 1; // Bit = 1 byte
+        if (output instanceof OutputByte) return 1; // Byte = 1 byte
+        if (output instanceof OutputWord) return 2; // Word = 2 bytes
+        if (output instanceof OutputDWord) return 4; // DWord = 4 bytes
+        if (output instanceof OutputInt) return 2; // Int = 2 bytes
+        if (output instanceof OutputDInt) return 4; // DInt = 4 bytes
+        if (output instanceof OutputReal) return 4; // Real = 4 bytes
+        return 1;
+    }
+
+    /**
+     * Groups the byte ranges of the outputs into read items. Ranges are taken in
+     * address order and a range whose gap to the current item is smaller than the
+     * overhead of a separate item extends it, as long as the item still fits in the
+     * reply of a single telegram. Items are never split inside an output.
+     */
+    private List<S7DataItem> groupItems(int databuildingblocknumber, int pdulength) {
+        List<S7DataItem> items = new ArrayList<>();
+        int maxamount = pdulength - REPLYHEADERSIZE - REPLYITEMHEADERSIZE;
+        Integer[] order = new Integer[outputList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> outputList.get(i).getStartAddress()));
+        int[] itemofoutput = new int[order.length];
+        S7DataItem item = null;
+        for (int i : order) {
+            Output ou = outputList.get(i);
+            int start = ou.getStartAddress();
+            int end = start + getDataSize(ou);
+            if (item == null || start - (item.Start + item.Amount) >= ITEMOVERHEAD
+                    || Math.max(end, item.Start + item.Amount) - item.Start > maxamount) {
+                item = new S7DataItem(S7.S7AreaDB, databuildingblocknumber, start, end - start, null, 0);
+                items.add(item);
+            } else {
+                item.Amount = Math.max(end, item.Start + item.Amount) - item.Start;
+            }
+            outputoffsets[i] = start - item.Start;
+            itemofoutput[i] = items.size() - 1;
+        }
+        // All the items share one buffer, one after the other.
+        int size = 0;
+        for (S7DataItem it : items) {
+            it.DataOffset = size;
+            size += it.Amount;
+        }
+        buffer = new byte[size];
+        for (S7DataItem it : items) {
+            it.Data = buffer;
+        }
+        for (int i = 0; i < outputoffsets.length; i++) {
+            outputoffsets[i] += items.get(itemofoutput[i]).DataOffset;
+        }
+        return items;
+    }
+
+    /**
+     * Packs the read items into telegrams (first fit, largest items first).
+     * A telegram accepts an item while the request, the reply and the number of
+     * items stay within the limits of the connection.
+     */
+    private void packTelegrams(List<S7DataItem> items, int pdulength) {
+        int maxitems = Math.min(S7Client.MaxVars, (pdulength - REQUESTHEADERSIZE) / REQUESTITEMSIZE);
+        List<S7DataItem> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingInt((S7DataItem it) -> it.Amount).reversed());
+        List<List<S7DataItem>> bins = new ArrayList<>();
+        List<Integer> replysizes = new ArrayList<>();
+        for (S7DataItem item : sorted) {
+            int cost = REPLYITEMHEADERSIZE + item.Amount + (item.Amount % 2);
+            int bin = 0;
+            while (bin < bins.size()
+                    && (bins.get(bin).size() >= maxitems || replysizes.get(bin) + cost > pdulength)) {
+                bin++;
+            }
+            if (bin == bins.size()) {
+                bins.add(new ArrayList<>());
+                replysizes.add(REPLYHEADERSIZE);
+            }
+            bins.get(bin).add(item);
+            replysizes.set(bin, replysizes.get(bin) + cost);
+        }
+        for (List<S7DataItem> bin : bins) {
+            bin.sort(Comparator.comparingInt((S7DataItem it) -> it.Start));
+            telegrams.add(bin.toArray(new S7DataItem[0]));
+        }
+    }
+
+    /**
+     * Returns the read items grouped per telegram, each array is one
+     * `S7Client.ReadMultiVars` job.
+     *
+     * @return List<S7DataItem[]> - The telegrams of the plan.
+     */
+    public List<S7DataItem[]> getTelegrams() {
+        return telegrams;
+    }
+
+    /**
+     * Returns the buffer all the read items of the plan read into.
+     *
+     * @return byte[] - The read buffer, reused by every read of the plan.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the offset of an output in the read buffer.
+     *
+     * @param index int - The index of the output in the planned output list.
+     * @return int - The offset of the first byte of the output in the buffer.
+     */
+    public int getOffset(int index) {
+        return outputoffsets[index];
+    }
+}
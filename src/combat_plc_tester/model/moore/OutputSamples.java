@@ -0,0 +1,104 @@
+// Package
+package combat_plc_tester.model.moore;
+
+/**
+ * Class: OutputSamples
+ *
+ * Purpose: Ring buffer of the output samples of a timed state test (see
+ * `StateTest.setSamplingMode`). Each sample is the time of a read of the outputs and
+ * which values of the state the outputs matched. The buffer keeps the `capacity` most
+ * recent samples, so sampling a long timer condition uses bounded memory, while the
+ * samples leading to a switch or a glitch are still available for the report.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class OutputSamples {
+
+    // The outputs matched the values of the state before the time condition.
+    public static final byte BEFORE = 1;
+    // The outputs matched the values of the state after the time condition.
+    public static final byte AFTER = 2;
+    // The outputs matched neither the values before nor the values after the time condition.
+    public static final byte NONE = 0;
+
+    private final long[] times; // Times of the samples (see `TestClock`).
+    private final byte[] matches; // Values matched by the samples (BEFORE | AFTER, or NONE).
+    private int next; // Index of the next sample in the buffer.
+    private long count; // Number of samples added since the last clear.
+
+    public OutputSamples(int capacity) {
+        this.times = new long[capacity];
+        this.matches = new byte[capacity];
+    }
+
+    public void clear() {
+        next = 0;
+        count = 0;
+    }
+
+    /**
+     * Adds a sample, replacing the oldest sample if the buffer is full.
+     *
+     * @param time long - The time of the read (see `TestClock`).
+     * @param match byte - The values matched by the outputs (BEFORE | AFTER, or NONE).
+     */
+    public void add(long time, byte match) {
+        times[next] = time;
+        matches[next] = match;
+        next = (next + 1) % times.length;
+        count++;
+    }
+
+    /**
+     * Returns the number of samples added since the last clear (also those no longer in the buffer).
+     *
+     * @return long - The number of samples.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of samples in the buffer.
+     *
+     * @return int - The number of samples, at most the capacity.
+     */
+    public int size() {
+        return (int) Math.min(count, times.length);
+    }
+
+    // Index in the buffer of a sample, 0 being the oldest sample in the buffer.
+    private int indexOf(int sample) {
+        return (next - size() + sample + times.length) % times.length;
+    }
+
+    public long getTime(int sample) {
+        return times[indexOf(sample)];
+    }
+
+    public byte getMatch(int sample) {
+        return matches[indexOf(sample)];
+    }
+
+    /**
+     * Formats the most recent samples, e.g. for the report of a failed timer condition.
+     *
+     * @param start long - The start of the timer condition (see `TestClock`).
+     * @param samples int - The maximum number of samples.
+     * @return String - The samples as "time ms: values", oldest first.
+     */
+    public String format(long start, int samples) {
+        StringBuilder text = new StringBuilder();
+        for (int sample = Math.max(0, size() - samples); sample < size(); sample++) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            byte match = getMatch(sample);
+            String values = match == (BEFORE | AFTER) ? "before/after" : match == BEFORE ? "before" : match == AFTER ? "after" : "none";
+            text.append(String.format("%.2f ms: %s", (getTime(sample) - start) / 1000000.0, values));
+        }
+        return text.toString();
+    }
+}
@@ -22,6 +22,8 @@ public class SequentialTransition extends Transition implements Serializable{
     
     private static final long serialVersionUID = 121L;
 
+    private boolean combination;    // Combination of a combinatorial transition.
+
     /**
      * Constructor: SequentialTransition
      *
@@ -59,4 +61,29 @@ public class SequentialTransition extends Transition implements Serializable{
         super(startStateID, endStateID, "sT", 0, 0, 0, 0, 0, 0, 0, 0);
     }
 
+    /**
+     * Constructor: SequentialTransition
+     *
+     * Creates a SequentialTransition object with a given ID, e.g. a combination
+     * of a combinatorial transition.
+     *
+     * @param transitionID The ID of the transition.
+     * @param startStateID The ID of the state where the transition starts.
+     * @param endStateID The ID of the state where the transition ends.
+     */
+    SequentialTransition(String transitionID, String startStateID, String endStateID) {
+        super(transitionID, startStateID, endStateID);
+        this.combination = true;
+    }
+
+    /**
+     * Returns whether the transition is a combination of a combinatorial transition
+     * (see `CombinatorialTransition.getSequentialTransitionsToTest`), not a transition of the model.
+     *
+     * @return boolean - `true` for a combination.
+     */
+    public boolean isCombination() {
+        return combination;
+    }
+
 }
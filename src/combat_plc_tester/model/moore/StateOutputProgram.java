@@ -0,0 +1,222 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import combat_plc_tester.model.IO.Output;
+import combat_plc_tester.model.IO.OutputBit;
+import combat_plc_tester.model.IO.OutputByte;
+import combat_plc_tester.model.IO.OutputDInt;
+import combat_plc_tester.model.IO.OutputDWord;
+import combat_plc_tester.model.IO.OutputInt;
+import combat_plc_tester.model.IO.OutputReal;
+import combat_plc_tester.model.IO.OutputWord;
+import Moka7.S7;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class: StateOutputProgram
+ *
+ * Purpose: A state compiled into a flat comparison program for the outputs of a test run.
+ * Each step of the program holds the offset of an output in the read buffer of the
+ * `OutputReadPlan`, its bit address, its type and the expected values before and after
+ * the time condition as primitives. Running the program is a single linear pass over
+ * the read buffer, without allocation or boxing.
+ *
+ * The steps keep the order of the original comparison: first the outputs of the test
+ * that are outputs of the state (expected values of the state), then the other outputs
+ * of the test (expected to keep their initial value).
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class StateOutputProgram {
+
+    // Types of the steps.
+    public static final byte TYPEBIT = 0;
+    public static final byte TYPEBYTE = 1;
+    public static final byte TYPEWORD = 2;
+    public static final byte TYPEDWORD = 3;
+    public static final byte TYPEINT = 4;
+    public static final byte TYPEDINT = 5;
+    public static final byte TYPEREAL = 6;
+
+    private final int[] offsets; // Offset of the output in the read buffer.
+    private final byte[] bits; // Bit address (bit outputs).
+    private final byte[] types; // Type of the output.
+    private final long[] expectedbefore; // Expected value before the time condition (Real as float bits).
+    private final long[] expectedafter; // Expected value after the time condition (Real as float bits).
+    private final Output[] reportoutputs; // Output to report for the step.
+    private final int stateoutputcount; // Number of steps on outputs of the state (the first steps).
+
+    /**
+     * Compiles a state for the outputs of a test run.
+     *
+     * @param state State - The state to compile.
+     * @param outputList List<Output> - The outputs of the test run.
+     * @param readplan OutputReadPlan - The read plan of the outputs (same order as outputList).
+     */
+    public StateOutputProgram(State state, List<Output> outputList, OutputReadPlan readplan) {
+        int size = outputList.size();
+        offsets = new int[size];
+        bits = new byte[size];
+        types = new byte[size];
+        expectedbefore = new long[size];
+        expectedafter = new long[size];
+        reportoutputs = new Output[size];
+        Map<String, Output> stateoutputs = new HashMap<>();
+        for (Output outstate : state.getOutputs()) {
+            stateoutputs.putIfAbsent(outstate.getOutputID(), outstate);
+        }
+        int step = 0;
+        // Outputs of the test that are outputs of the state.
+        for (int i = 0; i < size; i++) {
+            Output outstate = stateoutputs.get(outputList.get(i).getOutputID());
+            if (outstate != null) {
+                addStep(step++, outputList.get(i), readplan.getOffset(i), outstate,
+                        outstate.getValueBeforeTimeCondition(), outstate.getValueAfterTimeCondition());
+            }
+        }
+        stateoutputcount = step;
+        // Other outputs of the test, they keep their initial value.
+        for (int i = 0; i < size; i++) {
+            Output ou = outputList.get(i);
+            if (!stateoutputs.containsKey(ou.getOutputID())) {
+                addStep(step++, ou, readplan.getOffset(i), ou, ou.getInitialValue(), ou.getInitialValue());
+            }
+        }
+    }
+
+    private void addStep(int step, Output output, int offset, Output reportoutput, Object before, Object after) {
+        offsets[step] = offset;
+        bits[step] = output.getBitAddress();
+        types[step] = getType(output);
+        expectedbefore[step] = encode(types[step], before);
+        expectedafter[step] = encode(types[step], after);
+        reportoutputs[step] = reportoutput;
+    }
+
+    private static byte getType(Output output) {
+        if (output instanceof OutputBit) return TYPEBIT;
+        if (output instanceof OutputByte) return TYPEBYTE;
+        if (output instanceof OutputWord) return TYPEWORD;
+        if (output instanceof OutputDWord) return TYPEDWORD;
+        if (output instanceof OutputInt) return TYPEINT;
+        if (output instanceof OutputDInt) return TYPEDINT;
+        return TYPEREAL;
+    }
+
+    private static long encode(byte type, Object value) {
+        switch (type) {
+            case TYPEBIT:
+                return (boolean) value ? 1 : 0;
+            case TYPEBYTE:
+            case TYPEINT:
+                return (short) value;
+            case TYPEWORD:
+            case TYPEDINT:
+                return (int) value;
+            case TYPEDWORD:
+                return (long) value;
+            default:
+                return Float.floatToRawIntBits((float) value);
+        }
+    }
+
+    /**
+     * Decodes the value of a step from the read buffer (Real as float bits).
+     *
+     * @param buffer byte[] - The read buffer.
+     * @param step int - The step.
+     * @return long - The value in the PLC.
+     */
+    public long getPlcValue(byte[] buffer, int step) {
+        int offset = offsets[step];
+        switch (types[step]) {
+            case TYPEBIT:
+                return S7.GetBitAt(buffer, offset, bits[step]) ? 1 : 0;
+            case TYPEBYTE:
+                return buffer[offset] & 0xFF;
+            case TYPEWORD:
+                return S7.GetWordAt(buffer, offset);
+            case TYPEDWORD:
+                return S7.GetDWordAt(buffer, offset);
+            case TYPEINT:
+                return S7.GetShortAt(buffer, offset);
+            default:
+                // DInt, Real (float bits).
+                return S7.GetDIntAt(buffer, offset);
+        }
+    }
+
+    /**
+     * Checks whether the value in the PLC of a step equals the expected value.
+     * Real values are compared as floats.
+     *
+     * @param buffer byte[] - The read buffer.
+     * @param step int - The step.
+     * @param aftertime boolean - Compare with the value after the time condition.
+     * @return boolean - `true` if the values are equal.
+     */
+    public boolean isEqual(byte[] buffer, int step, boolean aftertime) {
+        long expected = aftertime ? expectedafter[step] : expectedbefore[step];
+        long plcvalue = getPlcValue(buffer, step);
+        if (types[step] == TYPEREAL) {
+            return Float.intBitsToFloat((int) plcvalue) == Float.intBitsToFloat((int) expected);
+        }
+        return plcvalue == expected;
+    }
+
+    /**
+     * Runs the program on the read buffer.
+     *
+     * @param buffer byte[] - The read buffer.
+     * @param aftertime boolean - Compare the outputs of the state with their values after the time condition.
+     * @return int - The first step that does not match, or -1 if all the outputs match.
+     */
+    public int run(byte[] buffer, boolean aftertime) {
+        for (int step = 0; step < offsets.length; step++) {
+            if (!isEqual(buffer, step, aftertime && step < stateoutputcount)) {
+                return step;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Formats the value in the PLC of a step as the original comparison printed it.
+     *
+     * @param buffer byte[] - The read buffer.
+     * @param step int - The step.
+     * @return String - The value in the PLC.
+     */
+    public String formatPlcValue(byte[] buffer, int step) {
+        long plcvalue = getPlcValue(buffer, step);
+        switch (types[step]) {
+            case TYPEBIT:
+                return String.valueOf(plcvalue != 0);
+            case TYPEREAL:
+                return String.valueOf(Float.intBitsToFloat((int) plcvalue));
+            default:
+                return String.valueOf(plcvalue);
+        }
+    }
+
+    public int getStepCount() {
+        return offsets.length;
+    }
+
+    public int getStateOutputCount() {
+        return stateoutputcount;
+    }
+
+    public byte getType(int step) {
+        return types[step];
+    }
+
+    public Output getReportOutput(int step) {
+        return reportoutputs[step];
+    }
+}
@@ -2,18 +2,12 @@
 package combat_plc_tester.model.moore;
 
 // Imports
-import combat_plc_tester.model.IO.OutputWord;
-import combat_plc_tester.model.IO.OutputDInt;
-import combat_plc_tester.model.IO.OutputByte;
 import combat_plc_tester.model.IO.Output;
-import combat_plc_tester.model.IO.OutputDWord;
-import combat_plc_tester.model.IO.OutputReal;
-import combat_plc_tester.model.IO.OutputInt;
-import combat_plc_tester.model.IO.OutputBit;
-import Moka7.S7;
+import Moka7.S7DataItem;
 import combat_plc_tester.controller.StateTestObserver;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * Class: StatePlcTest
@@ -37,10 +31,10 @@ import java.util.List;
  * 1. **PLC Communication:**
  *    - Uses the `S7Client` class from the Moka7 library to interact with a Siemens S7 PLC.
  *    - Reads output values from a designated data block in the PLC.
- * 2. Ensures that data is structured into a single contiguous byte array.
+ * 2. Reads the outputs through a read plan built once per test run, into a single reusable byte array.
  * 3. **Output Handling:**
- *    - Initializes outputs with their initial values for "before" and "after" time conditions.
- *    - Compares the expected output values with the actual values read from the PLC.
+ *    - Compares the expected output values with the actual values read from the PLC, without
+ *      modifying the outputs of the model.
  * 4. **Observer Notifications:**
  *    - Notifies observers with detailed information about output states, including mismatches.
  *
@@ -49,6 +43,9 @@ import java.util.List;
  * @since 13/01/2025
  */
 public class StatePlcTest extends StateTest {
+
+    private OutputReadPlan readplan; // Read plan of the outputs for the current test run.
+    private final Map<State, StateOutputProgram> stateprograms = new IdentityHashMap<>(); // Compiled states of the current test run.
      
     public StatePlcTest(){
         this.statetestobservers = new ArrayList<>();
@@ -71,88 +68,73 @@ public class StatePlcTest extends StateTest {
         }
     }
     
-   /**
-    * Determines the size of the data required for a specific output type.
-    *
-    * Calculates the number of bytes needed to represent the given output
-    *   based on its specific type (bit, byte, word, etc.).
-    *
-    * @param output Output - The output object for which the data size is to be determined.
-    * @return int - The size in bytes required for the given output type.
-    */
-    private short getDataSize(Output output) {
-    if (output instanceof OutputBit) return 1; // Bits = 1 byte 
-    if (output instanceof OutputByte) return 1; // Byte = 1 byte
-    if (output instanceof OutputWord) return 4; // Word = 2 bytes
-    if (output instanceof OutputDWord) return 8; // DWord = 4 bytes
-    if (output instanceof OutputInt) return 2; // Unsigned Integer = 4 bytes
-    if (output instanceof OutputDInt) return 4; // Integer = 8 bytes
-    if (output instanceof OutputReal) return 4; // Float = 8 bytes
-    return 1; 
-}
-    
     /**
-    * Handles the initialization of output values for the state test.
+    * Handles the outputs before a read of the state test.
     *
-    * Prepares the outputs by setting their initial values for both "before" and "after" time conditions.
+    * Nothing to prepare: the compiled `StateOutputProgram` compares the outputs that are not part
+    * of the state with their initial values directly, so the outputs of the model (shared by the
+    * test benches of a run) are not modified.
     *
     * @override Indicates that this method overrides an abstract or inherited implementation from the parent class.
     */
     @Override
     protected void handleOutputs() {
-        for (Output output : outputList) {
-            output.setValueBeforeTimeCondition(output.getInitialValue());
-            output.setValueAfterTimeCondition(output.getInitialValue());
-        }
     }   
     
+    /**
+     * Prepares the test run by building the read plan of the outputs.
+     *
+     * The byte ranges of the outputs are grouped into read items and packed into
+     * multi-variable read telegrams that fit in the negotiated PDU (see
+     * `OutputReadPlan`). The plan only depends on the outputs and on the
+     * connection, so it is built once and reused by every state test of the run.
+     */
+    @Override
+    public void prepareTestRun() {
+        readplan = new OutputReadPlan(outputList, databuildingblocknumberoutputs, plcclient.PDULength());
+        stateprograms.clear();
+    }
+
     /**
      * Reads output values from a Siemens S7 PLC using a data block and stores
-     * them in a HashMap.
+     * them in the read buffer of the read plan.
+     *
+     * Only the items of the read plan are read, so only the bytes holding
+     * outputs (and the small gaps between them) are transferred. The telegrams
+     * are pipelined by the client (up to the parallel jobs negotiated with the
+     * CPU). If no plan was prepared for the run yet, it is built first.
      *
-     * This method reads all output data in a single, unrestricted read
-     * operation, retrieving all bytes from the lowest to the highest address
-     * found in the output list. The data is then stored in the output value map
-     * (`outputvaluemap`), where each entry consists of a start address and its
-     * corresponding byte values.
+     * A read fails if a telegram or any of its items fails; the buffer then
+     * holds values of an earlier read, so the state test must not compare it.
      *
-     * The method ensures that all data is correctly mapped to its respective
-     * addresses, allowing efficient retrieval and processing without segmenting
-     * the read operation based on PDU size limitations.
+     * @return int - 0 if all the items were read, else the error of the S7 client.
      */
     @Override
-    protected void readOutputsFromPlc() {
-        short minaddress = 0;
-        short maxaddress = 0;
-        for (Output ou : outputList) {
-            short startaddress = ou.getStartAddress();
-            short size = getDataSize(ou);
-            short endaddress = (short) (startaddress + size - 1);
-            maxaddress = (short) Math.max(maxaddress, endaddress);
+    protected int readOutputsFromPlc() {
+        if (readplan == null) {
+            prepareTestRun();
         }
-        int bytesToRead = (maxaddress - minaddress) + 1;
-        byte[] byteArray = new byte[bytesToRead];
-        int result = plcclient.ReadArea(S7.S7AreaDB, databuildingblocknumberoutputs, minaddress, bytesToRead, byteArray);
+        int result = plcclient.ReadMultiVars(readplan.getTelegrams());
         if (result != 0) {
-            return;
+            return result;
         }
-        for (Output ou : outputList) {
-            short startaddress = ou.getStartAddress();
-            short size = getDataSize(ou);
-            int offset = startaddress - minaddress;
-            byte[] byteValueBuffer = new byte[size];
-            System.arraycopy(byteArray, offset, byteValueBuffer, 0, size);
-            outputvaluemap.put(startaddress, byteValueBuffer);
+        for (S7DataItem[] telegram : readplan.getTelegrams()) {
+            for (S7DataItem item : telegram) {
+                if (item.Result != 0) {
+                    return item.Result;
+                }
+            }
         }
+        return 0;
     }
 
     /**
     * Compares the expected output values of the state with the actual output values read from the PLC.
-    * The method takes the value of the output in the PLC from the output value map and compares it with
-    * the value of the outputs in the state or in the list of outputs of the test.
-    * Validates the outputs of the PLC against the model's expected outputs before and/or after the specified time condition.
-    * Provides detailed logging and notification for each output comparison, including mismatches.
-    * Ensures that all output types are handled appropriately (bit, byte, word, etc.).
+    * The state is compiled once per test run into a `StateOutputProgram` (offsets in the read buffer,
+    * types and expected values as primitives), which runs as a single linear pass over the read buffer.
+    * Validates the outputs of the PLC against the model's expected outputs before and/or after the specified time condition:
+    * first the outputs of the state, then the other outputs of the test (which must keep their initial value).
+    * Without observers no messages are built; with observers each compared output is reported up to the first mismatch.
     * 
     * Parameters:
     * @param aftertime boolean - Determines whether to compare outputs for the "after time condition".
@@ -162,333 +144,66 @@ public class StatePlcTest extends StateTest {
     */
     @Override
     protected boolean compareStateOutputs(boolean aftertime) {
-        // All outputs in the test.
-        List<Output> copiedoutputList = new ArrayList<>(outputList);
-        // All outputs in the state.
-        List<Output> stateoutputList = state.getOutputs();
-        boolean bitoutputvalue = false;
-        // Iterate outputs in the test.
-        for (Output ou : outputList) {
-            byte[] bytes;
-            if (ou instanceof OutputBit) {  
-                bytes = outputvaluemap.get(ou.getStartAddress());
-                short bitadres = ((OutputBit) ou).getBitAddress();
-                for (Output outstate : stateoutputList) {
-                    if (ou.getOutputID().equals(outstate.getOutputID())) {
-                        copiedoutputList.remove(ou);
-                        if (!aftertime) {
-                            bitoutputvalue = (boolean) outstate.getValueBeforeTimeCondition();
-                        } else {
-                            bitoutputvalue = (boolean) outstate.getValueAfterTimeCondition();
-                        }
-                        boolean plcvalue = S7.GetBitAt(bytes, 0, bitadres);
-                        notifyObservers(outstate);
-                        notifyStateTestObservers("PLCvalue: " + plcvalue);
-                        if (plcvalue == bitoutputvalue) {
-                            notifyStateTestObservers("PLC value equal to Model value ");
-                        } else {
-                            notifyStateTestObservers("PLC value not equal to Model value ");
-                        }
-                        notifyStateTestObservers("-------------------------------------------------------------");
-                        if (plcvalue != bitoutputvalue) {
-                            return false;
-                        }
-                    }
-                }
-            } else if (ou instanceof OutputByte) {
-                short plcvalues = (short) Byte.toUnsignedInt(outputvaluemap.get(ou.getStartAddress())[0]);
-                for (Output outstate : stateoutputList) {
-                    if (ou.getOutputID().equals(outstate.getOutputID())) {
-                        copiedoutputList.remove(ou);
-                        if (!aftertime) {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLCvalue: " + plcvalues);
-                            if (plcvalues == (short) outstate.getValueBeforeTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (plcvalues != (short) outstate.getValueBeforeTimeCondition()) {
-                                return false;
-                            }
-                        } else {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLCvalue: " + plcvalues);
-                            if (plcvalues == (short) outstate.getValueAfterTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (plcvalues != (short) outstate.getValueAfterTimeCondition()) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            } else if (ou instanceof OutputWord) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                for (Output outstate : stateoutputList) {
-                    if (ou.getOutputID().equals(outstate.getOutputID())) {
-                        copiedoutputList.remove(ou);
-                        if (!aftertime) {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetWordAt(plcvalues, 0));
-                            if (S7.GetWordAt(plcvalues, 0) == (int) outstate.getValueBeforeTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetWordAt(plcvalues, 0) != (int) outstate.getValueBeforeTimeCondition()) {
-                                return false;
-                            }
-                        } else {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetWordAt(plcvalues, 0));
-                            if (S7.GetWordAt(plcvalues, 0) == (int) outstate.getValueAfterTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetWordAt(plcvalues, 0) != (int) outstate.getValueAfterTimeCondition()) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            } else if (ou instanceof OutputDWord) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                for (Output outstate : stateoutputList) {
-                    if (ou.getOutputID().equals(outstate.getOutputID())) {
-                        copiedoutputList.remove(ou);
-                        if (!aftertime) {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetDWordAt(plcvalues, 0));
-                            if (S7.GetDWordAt(plcvalues, 0) == (long) outstate.getValueBeforeTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetDWordAt(plcvalues, 0) != (long) outstate.getValueBeforeTimeCondition()) {
-                                return false;
-                            }
-                        } else {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetDWordAt(plcvalues, 0));
-                            if (S7.GetDWordAt(plcvalues, 0) == (long) outstate.getValueAfterTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetDWordAt(plcvalues, 0) != (long) outstate.getValueAfterTimeCondition()) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            } else if (ou instanceof OutputInt) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                for (Output outstate : stateoutputList) {
-                    if (ou.getOutputID().equals(outstate.getOutputID())) {
-                        copiedoutputList.remove(ou);
-                        if (!aftertime) {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetShortAt(plcvalues, 0));
-                            if (S7.GetShortAt(plcvalues, 0) == (short) outstate.getValueBeforeTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetShortAt(plcvalues, 0) != (short) outstate.getValueBeforeTimeCondition()) {
-                                return false;
-                            }
-                        } else {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetShortAt(plcvalues, 0));
-                            if (S7.GetShortAt(plcvalues, 0) == (short) outstate.getValueAfterTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetShortAt(plcvalues, 0) != (short) outstate.getValueAfterTimeCondition()) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            } else if (ou instanceof OutputDInt) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                for (Output outstate : stateoutputList) {
-                    if (ou.getOutputID().equals(outstate.getOutputID())) {
-                        copiedoutputList.remove(ou);
-                        if (!aftertime) {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetDIntAt(plcvalues, 0));
-                            if (S7.GetDIntAt(plcvalues, 0) == (int) outstate.getValueBeforeTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetDIntAt(plcvalues, 0) != (int) outstate.getValueBeforeTimeCondition()) {
-                                return false;
-                            }
-                        } else {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetDIntAt(plcvalues, 0));
-                            if (S7.GetDIntAt(plcvalues, 0) == (int) outstate.getValueAfterTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetDIntAt(plcvalues, 0) != (int) outstate.getValueAfterTimeCondition()) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            } else if (ou instanceof OutputReal) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                for (Output outstate : stateoutputList) {
-                    if (ou.getOutputID().equals(outstate.getOutputID())) {
-                        copiedoutputList.remove(ou);
-                        if (!aftertime) {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetFloatAt(plcvalues, 0));
-                            if (S7.GetFloatAt(plcvalues, 0) == (float) outstate.getValueBeforeTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetFloatAt(plcvalues, 0) != (float) outstate.getValueBeforeTimeCondition()) {
-                                return false;
-                            }
-                        } else {
-                            notifyObservers(outstate);
-                            notifyStateTestObservers("PLC value: " + S7.GetFloatAt(plcvalues, 0));
-                            if (S7.GetFloatAt(plcvalues, 0) == (float) outstate.getValueAfterTimeCondition()) {
-                                notifyStateTestObservers("PLC value equal to Model value ");
-                            } else {
-                                notifyStateTestObservers("PLC value not equal to Model value ");
-                            }
-                            notifyStateTestObservers("-------------------------------------------------------------");
-                            if (S7.GetFloatAt(plcvalues, 0) != (float) outstate.getValueAfterTimeCondition()) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            }
+        StateOutputProgram program = getStateProgram();
+        // Buffer holding the outputs read from the PLC.
+        byte[] readbuffer = readplan.getBuffer();
+        if (statetestobservers.isEmpty()) {
+            return program.run(readbuffer, aftertime) < 0;
         }
-        // Iterate outputs in the state.
-        for (Output ou : copiedoutputList) {
-            byte[] bytes;
-            if (ou instanceof OutputBit) {
-                bytes = outputvaluemap.get(ou.getStartAddress());
-                short bitadres = ((OutputBit) ou).getBitAddress();
-                boolean plcvalue = S7.GetBitAt(bytes, 0, bitadres);
-                notifyObservers(ou);
-                notifyStateTestObservers("PLC value: " + plcvalue);
-                if (plcvalue == bitoutputvalue) {
-                    notifyStateTestObservers("PLC value equal to Model value ");
-                } else {
-                    notifyStateTestObservers("PLC value not equal to Model value ");
-                }
-                if (plcvalue != (boolean) ou.getValueBeforeTimeCondition()) {
-                    return false;
-                }
-            } else if (ou instanceof OutputByte) {
-                short plcvalues = (short) Byte.toUnsignedInt(outputvaluemap.get(ou.getStartAddress())[0]);
-                notifyObservers(ou);
-                notifyStateTestObservers("PLCvalue: " + plcvalues);
-                if (plcvalues == (short) ou.getValueBeforeTimeCondition()) {
-                    notifyStateTestObservers("PLC value equal to Model value ");
-                } else {
-                    notifyStateTestObservers("PLC value not equal to Model value ");
-                }
-                if (plcvalues != (short) ou.getValueBeforeTimeCondition()) {
-                    return false;
-                }
-            } else if (ou instanceof OutputWord) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                notifyObservers(ou);
-                notifyStateTestObservers("PLCvalue: " + S7.GetWordAt(plcvalues, 0));
-                if (S7.GetWordAt(plcvalues, 0) == (int) ou.getValueBeforeTimeCondition()) {
-                    notifyStateTestObservers("PLC value equal to Model value ");
-                } else {
-                    notifyStateTestObservers("PLC value not equal to Model value ");
-                }
-                if (S7.GetWordAt(plcvalues, 0) != (int) ou.getValueBeforeTimeCondition()) {
-                    return false;
-                }
-            } else if (ou instanceof OutputDWord) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                notifyObservers(ou);
-                notifyStateTestObservers("PLCvalue: " + S7.GetDWordAt(plcvalues, 0));
-                if (S7.GetDWordAt(plcvalues, 0) == (long) ou.getValueBeforeTimeCondition()) {
-                    notifyStateTestObservers("PLC value equal to Model value ");
-                } else {
-                    notifyStateTestObservers("PLC value not equal to Model value ");
-                }
-                if (S7.GetDWordAt(plcvalues, 0) != (long) ou.getValueBeforeTimeCondition()) {
-                    return false;
-                }
-            } else if (ou instanceof OutputInt) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                notifyObservers(ou);
-                notifyStateTestObservers("PLCvalue: " + S7.GetShortAt(plcvalues, 0));
-                if (S7.GetShortAt(plcvalues, 0) == (short) ou.getValueBeforeTimeCondition()) {
-                    notifyStateTestObservers("PLC value equal to Model value ");
-                } else {
-                    notifyStateTestObservers("PLC value not equal to Model value ");
-                }
-                if (S7.GetShortAt(plcvalues, 0) != (short) ou.getValueBeforeTimeCondition()) {
-                    return false;
-                }
-            } else if (ou instanceof OutputDInt) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                notifyObservers(ou);
-                notifyStateTestObservers("PLCvalue: " + S7.GetDIntAt(plcvalues, 0));
-                if (S7.GetDIntAt(plcvalues, 0) == (int) ou.getValueBeforeTimeCondition()) {
-                    notifyStateTestObservers("PLC value equal to Model value ");
-                } else {
-                    notifyStateTestObservers("PLC value not equal to Model value ");
-                }
-                if (S7.GetDIntAt(plcvalues, 0) != (int) ou.getValueBeforeTimeCondition()) {
-                    return false;
-                }
-            } else if (ou instanceof OutputReal) {
-                byte[] plcvalues = outputvaluemap.get(ou.getStartAddress());
-                notifyObservers(ou);
-                notifyStateTestObservers("PLCvalue: " + S7.GetFloatAt(plcvalues, 0));
-                if (S7.GetFloatAt(plcvalues, 0) == (float) ou.getValueBeforeTimeCondition()) {
-                    notifyStateTestObservers("PLC value equal to Model value ");
-                } else {
-                    notifyStateTestObservers("PLC value not equal to Model value ");
-                }
-                if (S7.GetFloatAt(plcvalues, 0) != (float) ou.getValueBeforeTimeCondition()) {
-                    return false;
-                }
+        for (int step = 0; step < program.getStepCount(); step++) {
+            boolean stateoutput = step < program.getStateOutputCount();
+            boolean equal = program.isEqual(readbuffer, step, aftertime && stateoutput);
+            notifyObservers(program.getReportOutput(step));
+            notifyStateTestObservers(getPlcValueLabel(program.getType(step), stateoutput) + program.formatPlcValue(readbuffer, step));
+            if (equal) {
+                notifyStateTestObservers("PLC value equal to Model value ");
+            } else {
+                notifyStateTestObservers("PLC value not equal to Model value ");
+            }
+            if (stateoutput) {
+                notifyStateTestObservers("-------------------------------------------------------------");
+            }
+            if (!equal) {
+                return false;
             }
         }
         return true;
     }
-   
+
     /**
-    * Notifies observers with detailed information about a specific output state.
-    *
-    * Parameters:
-    * @param outputstate Output - The specific output object whose details are being logged and notified.
-    */
+     * Compares the outputs read from the PLC with the outputs of the state in a single
+     * pass of the compiled state, without notifying the observers (settle mode polling).
+     *
+     * @param aftertime boolean - Determines whether to compare outputs for the "after time condition".
+     * @return boolean - `true` if all outputs match the expected values.
+     */
+    @Override
+    protected boolean matchStateOutputs(boolean aftertime) {
+        return getStateProgram().run(readplan.getBuffer(), aftertime) < 0;
+    }
+
+    // Returns the compiled current state, compiling it on its first test in the run.
+    private StateOutputProgram getStateProgram() {
+        StateOutputProgram program = stateprograms.get(state);
+        if (program == null) {
+            program = new StateOutputProgram(state, outputList, readplan);
+            stateprograms.put(state, program);
+        }
+        return program;
+    }
+
+    /**
+     * Returns the label of the PLC value message, as printed for each output type.
+     *
+     * @param type byte - The type of the output (see `StateOutputProgram`).
+     * @param stateoutput boolean - Whether the output is an output of the state.
+     * @return String - The label of the PLC value.
+     */
+    private String getPlcValueLabel(byte type, boolean stateoutput) {
+        boolean shortlabel = type == StateOutputProgram.TYPEBIT || type == StateOutputProgram.TYPEBYTE;
+        return shortlabel == stateoutput ? "PLCvalue: " : "PLC value: ";
+    }
+
     public void notifyObservers(Output outputstate) {
         notifyStateTestObservers("-------------------------------------------------------------");
         notifyStateTestObservers("StateID: " + state.getStateID());
@@ -7,7 +7,6 @@ import combat_plc_tester.controller.StateTestObserver;
 import combat_plc_tester.model.IO.Output;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -26,12 +25,15 @@ import java.util.List;
  *     3. Compare state outputs with PLC outputs, both before and after a specified time condition (`compareStateOutputs()`).
  * If TimerCondition - TimerConditionTolerance <= 2 * cycletime, then there are four reading times:
  * 1. First, immediately read and compare the output values with the values before the time condition.
- * 2. Wait for (TimerCondition - TimerConditionTolerance) / 2.
+ * 2. Wait until (TimerCondition - TimerConditionTolerance) / 2 after the first reading.
  * 3. Second, read and compare the output values with the values before the time condition.
- * 4. Wait for (TimerCondition - TimerConditionTolerance) / 2.
+ * 4. Wait until TimerCondition - TimerConditionTolerance after the first reading.
  * 5. Third, read and compare the output values with the values before the time condition.
- * 6. Wait for the remaining time.
+ * 6. Wait until TimerCondition + TimerConditionTolerance after the first reading.
  * 7. Finally, read and compare the output values with the values after the time condition.
+ * The waits are deadlines on the monotonic clock of `TestClock`; an interrupt ends the test (not passed).
+ * In sampling mode (`setSamplingMode`) steps 2 to 6 are replaced by continuous reads during the timer
+ * condition, which find glitches between the checkpoints and measure the switching time.
  *   - Subclasses define the specific implementation for these steps through abstract methods.
  * - **Observer Pattern:**
  *   - Allows observers to monitor the progress or results of a state test through methods for adding, removing, 
@@ -43,14 +45,19 @@ import java.util.List;
  */
 public abstract class StateTest {
 
+    // Sampling mode: maximum number of samples kept of a timer condition.
+    public static final int SAMPLECAPACITY = 4096;
+    // Sampling mode: number of samples reported with a failed timer condition.
+    private static final int REPORTEDSAMPLES = 8;
+    // Settle mode: minimum time (in milliseconds) between two reads, if the cycle time is shorter (or 0).
+    public static final long MINPOLLPERIOD = 5;
+
     // S7 Siemens PLC client used to read outputs and communicate with the PLC.
     protected S7Client plcclient;
     // The data block in the PLC where the output values will be read from.
     protected short databuildingblocknumberoutputs;
     // The list of all output objects used in the test.
     protected List<Output> outputList;
-    // A map containing the start address of each output as the key and the corresponding output value in byte form as the value.
-    protected HashMap<Short, byte[]> outputvaluemap = new HashMap<>();
     // Indicates whether the output values after the specified time should be compared with the PLC values.
     protected boolean aftertimecondition;
     // The tolerance (in milliseconds) for comparing the output value of the state with the corresponding value from the PLC.
@@ -61,70 +68,286 @@ public abstract class StateTest {
     protected State state;
     // A list of observers to notify about the results of the test, or to provide updates on PLC readings and comparisons with state outputs.
     protected List<StateTestObserver> statetestobservers;
+    // Settle mode: number of consecutive reads (one per cycle time, at least `MINPOLLPERIOD` apart) the outputs must match the state, 0 if not in settle mode.
+    protected int settlereads;
+    // Settle mode: maximum time (in milliseconds) for the outputs to settle.
+    protected long settletimeout;
+    // Settle mode: time (in milliseconds) from the input write (or the start of the last state test) until its outputs settled, -1 if they did not settle.
+    protected double settlelatency = -1;
+    // Settle mode: time (of `TestClock`) of the input write the state test follows, -1 if none.
+    protected long writetime = -1;
+    // Sampling mode: the outputs are read continuously during the timer condition instead of at checkpoints.
+    protected boolean samplingmode;
+    // Sampling mode: the most recent samples of the timer condition.
+    protected final OutputSamples outputsamples = new OutputSamples(SAMPLECAPACITY);
+    // Sampling mode: time (in milliseconds) from the start of the timer condition until the outputs switched, -1 if not observed.
+    protected double switchingtime = -1;
     
     public final boolean doStateTest() {
+        switchingtime = -1;
         // If the aftertimecondition is false, no timing read and comparison 
         // of the output values between the state's outputs and the PLC is required.
         if (!aftertimecondition) {
+            if (settlereads > 0) {
+                return settleOutputs();
+            }
             handleOutputs();
-            readOutputsFromPlc();
-            return compareStateOutputs(false);
+            return readOutputs() && compareStateOutputs(false);
             // Else timing read and comparison is required.
         } else {
-            // Start time.
-            long startTime = System.currentTimeMillis();
+            // Start time: the checkpoints are deadlines from here on the monotonic clock (see `TestClock`),
+            // so the time needed to read and compare the outputs does not delay them.
+            long startTime = TestClock.now();
             // First time : Read the output values from the PLC and compare them with the expected output values of the PLC.
             // Here, the before-time values will be compared.
-            handleOutputs();
-            readOutputsFromPlc();
-            if (!compareStateOutputs(false)) {
-                return false;
+            if (settlereads > 0) {
+                // In settle mode the timer condition starts at the input write, as the outputs
+                // are polled from there on instead of read after a fixed wait.
+                if (writetime >= 0) {
+                    startTime = writetime;
+                }
+                if (!settleOutputs()) {
+                    return false;
+                }
+            } else {
+                handleOutputs();
+                if (!readOutputs() || !compareStateOutputs(false)) {
+                    return false;
+                }
+            }
+            if (samplingmode) {
+                return sampleTimerCondition(startTime);
             }
             if (state.getTimerCondition() - state.getTimerConditionTolerance() >= 2 * cycletime) {
-                try {
-                    // Wait on TimerCondition - TimerConditionTolerance.
-                    Thread.sleep((state.getTimerCondition() - state.getTimerConditionTolerance()) / 2);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                long halfTime = (state.getTimerCondition() - state.getTimerConditionTolerance()) / 2;
+                // Wait on (TimerCondition - TimerConditionTolerance) / 2.
+                if (!TestClock.waitUntil(TestClock.deadline(startTime, halfTime))) {
+                    return false;
                 }
                 // Second time : Read the output values from the PLC and compare them with the expected output values of the PLC.
                 // Here, the before-time values will be compared.
                 handleOutputs();
-                readOutputsFromPlc();
-                if (!compareStateOutputs(false)) {
+                if (!readOutputs() || !compareStateOutputs(false)) {
                     return false;
                 }
-                try {
-                    // Wait on TimerCondition - TimerConditionTolerance.
-                    Thread.sleep((state.getTimerCondition() - state.getTimerConditionTolerance()) / 2);
-
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                // Wait on TimerCondition - TimerConditionTolerance.
+                if (!TestClock.waitUntil(TestClock.deadline(startTime, 2 * halfTime))) {
+                    return false;
                 }
                 // Third time : Read the output values from the PLC and compare them with the expected output values of the PLC.
                 // Here, the before-time values will be compared.
                 handleOutputs();
-                readOutputsFromPlc();
-                if (!compareStateOutputs(false)) {
+                if (!readOutputs() || !compareStateOutputs(false)) {
                     return false;
                 }
             }
-            // Wait on timer condition form the starting point.
-            try {
-                // Wait on the rest of the ellapsed time and the Timercondition + Timerconditiontolerance
-                long result = System.currentTimeMillis() - startTime;
-               Thread.sleep(state.getTimerCondition() - result + state.getTimerConditionTolerance());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            // Wait on the Timercondition + Timerconditiontolerance from the starting point.
+            if (!TestClock.waitUntil(TestClock.deadline(startTime, state.getTimerCondition() + state.getTimerConditionTolerance()))) {
+                return false;
             }
             // Last time : Read the output values from the PLC and compare them with the expected output values of the PLC.
             // Here, the after-time values will be compared.
             handleOutputs();
-            readOutputsFromPlc();
-            return compareStateOutputs(true);
+            return readOutputs() && compareStateOutputs(true);
         }
     }
 
+    /**
+     * Settle mode: reads the outputs once per cycle time (at least `MINPOLLPERIOD` apart) until
+     * they match the (before-time) outputs of the state for `settlereads` consecutive reads, or
+     * until `settletimeout`. The comparisons while polling are silent (`matchStateOutputs`); the
+     * last read is compared and reported (`compareStateOutputs`), once settled or at the timeout.
+     * Outputs that did not match for `settlereads` consecutive reads at the timeout fail the
+     * test, even if the last read matches. The settle latency is measured from the input write
+     * (`setWriteTime`), or from the start of the state test if it follows no write.
+     *
+     * @return boolean - `true` if the outputs settled, `false` if they did not settle within the
+     *                   timeout, a read failed or the test was interrupted.
+     */
+    private boolean settleOutputs() {
+        long startTime = TestClock.now();
+        long pollperiod = Math.max(cycletime, MINPOLLPERIOD);
+        long timeout = TestClock.deadline(startTime, Math.max(settletimeout, settlereads * pollperiod));
+        long latencyStart = writetime >= 0 ? writetime : startTime;
+        long readTime = startTime;
+        long stableTime = startTime;
+        int stablereads = 0;
+        settlelatency = -1;
+        while (true) {
+            handleOutputs();
+            if (!readOutputs()) {
+                return false;
+            }
+            if (matchStateOutputs(false)) {
+                if (stablereads == 0) {
+                    stableTime = readTime;
+                }
+                stablereads++;
+                if (stablereads >= settlereads) {
+                    settlelatency = (stableTime - latencyStart) / 1000000.0;
+                    return compareStateOutputs(false);
+                }
+            } else {
+                stablereads = 0;
+            }
+            long nextReadTime = TestClock.deadline(readTime, pollperiod);
+            if (nextReadTime - timeout > 0) {
+                compareStateOutputs(false);
+                notifyStateTestObservers("Outputs not settled: " + stablereads + " of " + settlereads
+                        + " consecutive matching reads within " + (TestClock.now() - startTime) / 1000000.0 + " ms");
+                return false;
+            }
+            if (!TestClock.waitUntil(nextReadTime)) {
+                return false;
+            }
+            readTime = nextReadTime;
+        }
+    }
+
+    /**
+     * Sampling mode: reads the outputs back to back, as fast as the PLC answers, from the
+     * start of the timer condition until TimerCondition + TimerConditionTolerance. Each read
+     * is classified (values before and/or after the time condition, see `OutputSamples`):
+     *
+     * - A read matching neither the before-time nor the after-time values is a glitch.
+     * - A read back at the before-time values after the switch is a glitch.
+     * - The first read at the after-time values is the switching time, which must be within
+     *   TimerCondition +/- TimerConditionTolerance.
+     *
+     * The PLC takes the values of a read somewhere between the request and the response, so
+     * the switch happened after the request of the previous read and before the response of
+     * the switching read. A switch is only too early if the response came before
+     * TimerCondition - TimerConditionTolerance, and only too late if no read requested before
+     * TimerCondition + TimerConditionTolerance saw it and the final read does not see it either.
+     * The samples and the reported switching time are stamped with the midpoint of request and
+     * response; the resolution is the whole interval.
+     *
+     * The test ends with the read and comparison of the after-time values, as without sampling.
+     *
+     * @param startTime long - The start of the timer condition (see `TestClock`).
+     * @return boolean - `true` if the outputs switched within the timer condition without glitches
+     *                   (`false` if a read failed).
+     */
+    private boolean sampleTimerCondition(long startTime) {
+        long earliest = TestClock.deadline(startTime, state.getTimerCondition() - state.getTimerConditionTolerance());
+        long deadline = TestClock.deadline(startTime, state.getTimerCondition() + state.getTimerConditionTolerance());
+        long previousRequestTime = startTime;
+        long switchTime = -1;
+        outputsamples.clear();
+        while (TestClock.now() - deadline < 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            long requestTime = TestClock.now();
+            if (!readOutputs()) {
+                return false;
+            }
+            long responseTime = TestClock.now();
+            long readTime = requestTime + (responseTime - requestTime) / 2;
+            byte match = (byte) ((matchStateOutputs(false) ? OutputSamples.BEFORE : 0) | (matchStateOutputs(true) ? OutputSamples.AFTER : 0));
+            outputsamples.add(readTime, match);
+            if (match == OutputSamples.NONE || (switchTime >= 0 && match == OutputSamples.BEFORE)) {
+                notifyStateTestObservers("Timer condition: glitch after " + (readTime - startTime) / 1000000.0 + " ms, samples: " + outputsamples.format(startTime, REPORTEDSAMPLES));
+                compareStateOutputs(switchTime >= 0);
+                return false;
+            }
+            if (switchTime < 0 && match == OutputSamples.AFTER) {
+                switchTime = readTime;
+                switchingtime = (switchTime - startTime) / 1000000.0;
+                notifyStateTestObservers("Timer condition: switched after " + switchingtime + " ms (resolution " + (responseTime - previousRequestTime) / 1000000.0
+                        + " ms), expected " + state.getTimerCondition() + " +/- " + state.getTimerConditionTolerance() + " ms");
+                if (responseTime - earliest < 0) {
+                    notifyStateTestObservers("Timer condition: switched too early, samples: " + outputsamples.format(startTime, REPORTEDSAMPLES));
+                    compareStateOutputs(false);
+                    return false;
+                }
+            }
+            previousRequestTime = requestTime;
+        }
+        double window = (TestClock.now() - startTime) / 1000000.0;
+        notifyStateTestObservers("Timer condition: " + outputsamples.getCount() + " samples in " + window + " ms");
+        // Last time : Read the output values from the PLC and compare them with the expected output values of the PLC.
+        // Here, the after-time values will be compared.
+        return readOutputs() && compareStateOutputs(true);
+    }
+
+    /**
+     * Reads the outputs from the PLC and reports a failed read. A failed read fails the
+     * state test, so outputs of an earlier read are never compared with the state.
+     *
+     * @return boolean - `true` if the outputs were read.
+     */
+    private boolean readOutputs() {
+        int result = readOutputsFromPlc();
+        if (result != 0) {
+            notifyStateTestObservers("Reading the outputs from the PLC failed: " + S7Client.ErrorText(result));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the sampling mode of the timed state tests: the outputs are read continuously during
+     * the timer condition, to find glitches and the switching time, instead of at checkpoints.
+     *
+     * @param samplingmode boolean - `true` to sample the timer conditions.
+     */
+    public final void setSamplingMode(boolean samplingmode) {
+        this.samplingmode = samplingmode;
+    }
+
+    /**
+     * Returns the switching time observed by the last timed state test in sampling mode.
+     *
+     * @return double - The time in milliseconds from the start of the timer condition, -1 if not observed.
+     */
+    public final double getSwitchingTime() {
+        return switchingtime;
+    }
+
+    /**
+     * Compares the outputs read from the PLC with the outputs of the state without reporting
+     * the comparison, e.g. while polling for the outputs to settle. By default the comparison
+     * of `compareStateOutputs` is used.
+     *
+     * @param aftertime boolean - Determines whether to compare outputs for the "after time condition".
+     * @return boolean - `true` if all outputs match the expected values.
+     */
+    protected boolean matchStateOutputs(boolean aftertime) {
+        return compareStateOutputs(aftertime);
+    }
+
+    /**
+     * Sets the settle mode of the state test: the outputs are polled once per cycle time until
+     * they match the state for a number of consecutive reads, instead of being read once after
+     * a fixed wait.
+     *
+     * @param settlereads int - Number of consecutive matching reads, 0 to turn the settle mode off.
+     * @param settletimeout long - Maximum time in milliseconds for the outputs to settle.
+     */
+    public final void setSettleMode(int settlereads, long settletimeout) {
+        this.settlereads = settlereads;
+        this.settletimeout = settletimeout;
+    }
+
+    /**
+     * Sets the time of the input write the next state test follows, the start of its settle latency.
+     *
+     * @param writetime long - The time (of `TestClock`) the inputs were written, -1 if the state test follows no write.
+     */
+    public final void setWriteTime(long writetime) {
+        this.writetime = writetime;
+    }
+
+    /**
+     * Returns the time the outputs needed to settle in the last state test in settle mode.
+     *
+     * @return double - The settle latency in milliseconds, -1 if the outputs did not settle.
+     */
+    public final double getSettleLatency() {
+        return settlelatency;
+    }
+
     /**
      * Sets the PLC client for communication.
      *
@@ -160,15 +383,6 @@ public abstract class StateTest {
         this.outputList = outputList;
     }
 
-    /**
-     * Sets the map of input values for the state test.
-     *
-     * @param outputvaluemap HashMap<Short, byte[]> - The map of output addresses to values.
-     */
-    public final void setOutputvaluemap(HashMap<Short, byte[]> outputvaluemap) {
-        this.outputvaluemap = outputvaluemap;
-    }
-
     /**
     * Sets the after-time condition flag for the state test.
     *
@@ -229,8 +443,15 @@ public abstract class StateTest {
      */
     public abstract void notifyStateTestObservers(String message); 
     
+    /**
+     * Prepares a test run, called once after connecting to the PLC and before the first
+     * state test of the run. Work that only depends on the outputs and on the connection
+     * is done here instead of in every state test.
+     */
+    public abstract void prepareTestRun();
+    
     protected abstract void handleOutputs();
-    protected abstract void readOutputsFromPlc();
+    protected abstract int readOutputsFromPlc();
     protected abstract boolean compareStateOutputs(boolean aftertime); 
     
 }
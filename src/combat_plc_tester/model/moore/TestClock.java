@@ -0,0 +1,112 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class: TestClock
+ *
+ * Purpose: Timing service of the tests. The waits of a test (cycle time after writing
+ * inputs, checkpoints of a timer condition) are scheduled against deadlines on the
+ * monotonic clock (`System.nanoTime`), so the time spent reading and comparing outputs
+ * does not shift the next checkpoint, and changes of the wall clock do not matter.
+ *
+ * Waiting parks the thread (`LockSupport.parkNanos`) until shortly before the deadline
+ * and spins for the rest. The spin time is calibrated once on the overshoot of parking
+ * on this platform (capped at `MAXSPINNANOS`), so a wait costs almost no CPU while it
+ * still ends close to its deadline.
+ *
+ * An interrupt ends a wait early (the interrupt status is kept).
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public final class TestClock {
+
+    // Limits of the calibrated spin time before a deadline.
+    public static final long MINSPINNANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    public static final long MAXSPINNANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    // Number of parks measured by the calibration.
+    private static final int CALIBRATIONPARKS = 15;
+
+    private static final long SPINNANOS = calibrate(); // Time spun before a deadline instead of parking.
+
+    private TestClock() {
+    }
+
+    /**
+     * Measures how late a short park wakes up on this platform.
+     *
+     * @return long - The spin time in nanoseconds: the slowest wake-up, within the limits.
+     */
+    private static long calibrate() {
+        long park = TimeUnit.MICROSECONDS.toNanos(100);
+        long slowest = 0;
+        for (int i = 0; i < CALIBRATIONPARKS; i++) {
+            long start = System.nanoTime();
+            LockSupport.parkNanos(park);
+            slowest = Math.max(slowest, System.nanoTime() - start - park);
+        }
+        return Math.max(MINSPINNANOS, Math.min(MAXSPINNANOS, slowest));
+    }
+
+    /**
+     * Returns the current time of the monotonic clock.
+     *
+     * @return long - The time in nanoseconds, only meaningful relative to other times of this clock.
+     */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns the deadline a number of milliseconds after a time of this clock.
+     *
+     * @param start long - A time of this clock (see `now()`).
+     * @param millis long - The delay in milliseconds.
+     * @return long - The deadline.
+     */
+    public static long deadline(long start, long millis) {
+        return start + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Waits until a deadline. Returns immediately if the deadline has passed.
+     *
+     * @param deadline long - The deadline (see `deadline()`).
+     * @return boolean - true if the deadline was reached, false if the thread was interrupted.
+     */
+    public static boolean waitUntil(long deadline) {
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            if (remaining > SPINNANOS) {
+                LockSupport.parkNanos(remaining - SPINNANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Waits a number of milliseconds from now.
+     *
+     * @param millis long - The time to wait in milliseconds.
+     * @return boolean - true if the time has passed, false if the thread was interrupted.
+     */
+    public static boolean waitFor(long millis) {
+        return waitUntil(deadline(now(), millis));
+    }
+
+    public static long getSpinNanos() {
+        return SPINNANOS;
+    }
+}
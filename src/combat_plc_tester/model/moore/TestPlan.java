@@ -0,0 +1,227 @@
+// Package
+package combat_plc_tester.model.moore;
+
+// Imports
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Class: TestPlan
+ *
+ * Purpose: Orders test cycles so that consecutive cycles share their prefixes. The cycles
+ * are put in a prefix tree (trie) of states and transitions, which is walked depth-first.
+ * Each cycle of the walk is a `Step`: the test continues at the state where the cycle leaves
+ * the part of the tree already tested (`getStart()`), instead of testing the whole cycle again.
+ *
+ * The state where the next cycle continues is reached from the state the PLC is in after the
+ * previous cycle (the last state of that cycle, S0 for the test cycles) over the cheapest path
+ * of transitions already tested (`getRoute()`), by the cost of its steps (`StepCost`, e.g. the
+ * cycle time and the timer conditions of the states). When the PLC is already in that state,
+ * the route is the state alone and nothing is replayed. In a Moore model the outputs only
+ * depend on the state, so any tested path to the state is a safe way to reach it.
+ *
+ * @author Seniow Andy
+ * @version 1.0
+ * @since 13/01/2025
+ */
+public class TestPlan {
+
+    // Maximum number of cycles planned at once.
+    public static final int MAXBATCH = 4096;
+
+    private final List<Step> steps = new ArrayList<>(); // The cycles in the order of the depth-first walk.
+
+    /**
+     * Interface: StepCost
+     *
+     * Purpose: Cost (e.g. in milliseconds) of reaching a state over a transition.
+     */
+    public interface StepCost {
+        long cost(String transitionID, String stateID);
+    }
+
+    /**
+     * Class: Step
+     *
+     * Purpose: A cycle to test, with the state where its test continues and the path reaching that state.
+     */
+    public static class Step {
+
+        private final List<String> cycle; // The cycle.
+        private final int start; // Index in the cycle of the state where the test continues.
+        private final List<String> route; // Tested path from the state of the PLC to that state (state, transition, ..., state).
+
+        private Step(List<String> cycle, int start, List<String> route) {
+            this.cycle = cycle;
+            this.start = start;
+            this.route = route;
+        }
+
+        public List<String> getCycle() {
+            return cycle;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public List<String> getRoute() {
+            return route;
+        }
+    }
+
+    // Node of the prefix tree: a state of a cycle, reached over the transition from its parent.
+    private static class Node {
+
+        private final Node parent; // Previous state, null for the start state.
+        private final String transitionID; // Transition from the parent to this state.
+        private final String stateID; // The state.
+        private final int index; // Index of the state in its cycles.
+        private final long cost; // Cost of reaching the state from the start state.
+        private final Map<List<String>, Node> children = new LinkedHashMap<>(); // Next states by transition and state ID.
+        private List<String> cycle; // Cycle ending in this node, if any.
+        private boolean tested; // Set once a cycle of the plan passes this node.
+
+        private Node(Node parent, String transitionID, String stateID, long cost) {
+            this.parent = parent;
+            this.transitionID = transitionID;
+            this.stateID = stateID;
+            this.index = parent == null ? 0 : parent.index + 2;
+            this.cost = cost;
+        }
+
+        // The path from the start state to this state.
+        private List<String> getPath() {
+            List<String> path = new ArrayList<>();
+            for (Node node = this; node != null; node = node.parent) {
+                path.add(node.stateID);
+                if (node.transitionID != null) {
+                    path.add(node.transitionID);
+                }
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+
+    /**
+     * Plans the test of cycles.
+     *
+     * @param cycles Collection<List<String>> - The cycles (state, transition, ..., state), starting in the same state.
+     * @param stepcost StepCost - The cost of the steps, to choose the paths reaching the states.
+     */
+    public TestPlan(Collection<List<String>> cycles, StepCost stepcost) {
+        Map<String, Node> roots = new LinkedHashMap<>();
+        for (List<String> cycle : cycles) {
+            Node node = roots.computeIfAbsent(cycle.get(0), stateID -> new Node(null, null, stateID, 0));
+            for (int i = 1; i < cycle.size(); i = i + 2) {
+                Node parent = node;
+                String transitionID = cycle.get(i);
+                String stateID = cycle.get(i + 1);
+                node = parent.children.computeIfAbsent(Arrays.asList(transitionID, stateID),
+                        key -> new Node(parent, transitionID, stateID, parent.cost + stepcost.cost(transitionID, stateID)));
+            }
+            node.cycle = cycle;
+        }
+        for (Node root : roots.values()) {
+            plan(root);
+        }
+    }
+
+    // Walks the tree depth-first, adding a step for each cycle.
+    private void plan(Node root) {
+        Map<String, Node> cheapest = new HashMap<>(); // Cheapest tested node of each state.
+        Map<String, Map<List<String>, Long>> testededges = new HashMap<>(); // Tested transitions by start state: (transition, end state) -> cost.
+        String current = root.stateID; // State of the PLC after the previous step.
+        Deque<Node> open = new ArrayDeque<>();
+        open.push(root);
+        while (!open.isEmpty()) {
+            Node node = open.pop();
+            if (node.cycle != null) {
+                // The deepest node of the cycle already tested.
+                Node branch = node;
+                while (branch.parent != null && !branch.tested) {
+                    branch = branch.parent;
+                }
+                List<String> route;
+                if (!branch.tested || branch.stateID.equals(current)) {
+                    route = Collections.singletonList(branch.stateID);
+                } else {
+                    route = getRoute(testededges, current, branch.stateID);
+                    if (route == null) {
+                        // No tested way from the state of the PLC: from the start state.
+                        route = cheapest.get(branch.stateID).getPath();
+                    }
+                }
+                steps.add(new Step(node.cycle, branch.index, route));
+                for (Node tested = node; tested != null && !tested.tested; tested = tested.parent) {
+                    tested.tested = true;
+                    Node known = cheapest.get(tested.stateID);
+                    if (known == null || tested.cost < known.cost) {
+                        cheapest.put(tested.stateID, tested);
+                    }
+                    if (tested.parent != null) {
+                        testededges.computeIfAbsent(tested.parent.stateID, stateID -> new LinkedHashMap<>())
+                                .merge(Arrays.asList(tested.transitionID, tested.stateID), tested.cost - tested.parent.cost, Math::min);
+                    }
+                }
+                current = node.cycle.get(node.cycle.size() - 1);
+            }
+            List<Node> children = new ArrayList<>(node.children.values());
+            for (int i = children.size() - 1; i >= 0; i--) {
+                open.push(children.get(i));
+            }
+        }
+    }
+
+    // The cheapest path from a state to another state over tested transitions (Dijkstra), or null if there is none.
+    private static List<String> getRoute(Map<String, Map<List<String>, Long>> testededges, String from, String to) {
+        Map<String, Long> distances = new HashMap<>();
+        Map<String, List<String>> previous = new HashMap<>(); // State -> (previous state, transition).
+        PriorityQueue<Map.Entry<String, Long>> queue = new PriorityQueue<>(Map.Entry.comparingByValue());
+        distances.put(from, 0L);
+        queue.add(new AbstractMap.SimpleEntry<>(from, 0L));
+        while (!queue.isEmpty()) {
+            Map.Entry<String, Long> entry = queue.poll();
+            String stateID = entry.getKey();
+            if (entry.getValue() > distances.get(stateID)) {
+                continue;
+            }
+            if (stateID.equals(to)) {
+                List<String> route = new ArrayList<>();
+                route.add(to);
+                for (List<String> step = previous.get(to); step != null; step = previous.get(step.get(0))) {
+                    route.add(step.get(1));
+                    route.add(step.get(0));
+                }
+                Collections.reverse(route);
+                return route;
+            }
+            for (Map.Entry<List<String>, Long> edge : testededges.getOrDefault(stateID, Collections.emptyMap()).entrySet()) {
+                String next = edge.getKey().get(1);
+                long distance = entry.getValue() + edge.getValue();
+                Long known = distances.get(next);
+                if (known == null || distance < known) {
+                    distances.put(next, distance);
+                    previous.put(next, Arrays.asList(stateID, edge.getKey().get(0)));
+                    queue.add(new AbstractMap.SimpleEntry<>(next, distance));
+                }
+            }
+        }
+        return null;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+}
@@ -89,7 +89,25 @@ public abstract class Transition extends GraphElement implements Serializable{
         this.endX = endX;
         this.endY = endY;
     }
-    
+
+    /**
+     * Constructor: Transition
+     *
+     * Initializes a new Transition object with a given ID, e.g. a transition
+     * derived from another transition. The ID counter is not changed.
+     *
+     * @param transitionID The ID of the transition.
+     * @param startStateID The ID of the state where the transition starts.
+     * @param endStateID The ID of the state where the transition ends.
+     */
+    protected Transition(String transitionID, String startStateID, String endStateID) {
+        this.transitionID = transitionID;
+        this.inputs = new ArrayList<>();
+        this.aftertimecondition = false;
+        this.startStateID = startStateID;
+        this.endStateID = endStateID;
+    }
+
     public static int getObjectCount(){
         return number;
     }
@@ -11,10 +11,11 @@ import combat_plc_tester.model.IO.InputDInt;
 import combat_plc_tester.model.IO.InputInt;
 import combat_plc_tester.model.IO.Input;
 import Moka7.S7;
+import Moka7.S7Client;
+import Moka7.S7DataItem;
 import combat_plc_tester.controller.TransitionTestObserver;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,7 +32,10 @@ import java.util.Map;
  * 
  * Key Responsibilities:
  * 1. Manages communication with a Siemens PLC via the S7Client class.
- * 2. Ensures that data is structured into a single contiguous byte array.
+ * 2. Ensures that data is structured into a single contiguous byte array, built from a
+ *    baseline of the initial values and a precompiled patch per transition.
+ *    The image last written to the PLC is kept for the test run, so after the first
+ *    transition only the byte ranges that changed are written.
  * 3. Implements methods to notify observers about the status and details of the current transition test.
  * 
  *
@@ -40,6 +44,15 @@ import java.util.Map;
  * @since 13/01/2025
  */
 public class TransitionPlcTest extends TransitionTest {
+
+    private static final int WRITEHEADERSIZE = 12; // S7 header + function + items count
+    private static final int WRITEITEMSIZE = 16; // Var spec. + data header of one item
+    
+    private InputImageProgram imageprogram; // Baseline image of the inputs for the current test run.
+    private final Map<Transition, InputImageProgram.Patch> patches = new IdentityHashMap<>(); // Compiled transitions of the current test run.
+    private InputImageProgram.Patch patch; // Patch of the current transition.
+    private byte[] image; // Work image of the current transition.
+    private byte[] writtenimage; // Input image last written to the PLC in this test run (null = unknown).
     
     public TransitionPlcTest(){
          this.transitiontestobservers = new ArrayList<>();
@@ -63,137 +76,48 @@ public class TransitionPlcTest extends TransitionTest {
     }
     
     /**
-     * Handles the initialization and preparation of PLC inputs.
-     *
-     * Processes the `inputList` to ensure that all inputs are set
-     * to their initial values and updates the `inputvaluemap` with the
-     * corresponding byte representation for each input type.
+     * Prepares the test run: compiles the baseline image of the inputs. The inputs
+     * in the PLC are unknown until the first transition of the run has written the
+     * whole input image.
+     */
+    @Override
+    public void prepareTestRun() {
+        imageprogram = new InputImageProgram(inputList);
+        patches.clear();
+        image = new byte[imageprogram.getImageSize()];
+        writtenimage = null;
+    }
+    
+    /**
+     * Builds the image of the inputs at their initial values.
      *
-     * The method performs the following tasks: 
-     * 1. Iterates through the list of `Input` objects (`inputList`). 
-     * 2. For each input: - Checks if its starting address already exists 
-     * in the `inputvaluemap`. - If the address exists, updates the 
-     * corresponding byte array with the input's initial value. 
-     * - If the address does not exist, creates a new byte array and
-     * initializes it with the input's value. 
-     * 3. Handles different input types (`InputBit`, `InputByte`, `InputWord`, etc.) 
-     * and applies the appropriate encoding using the Moka7 library methods 
-     * (`S7.SetBitAt`, `S7.SetWordAt`, etc.). 
-     * 4. Updates the `inputvaluemap` with the modified or newly created
-     * byte arrays.
+     * The baseline image is encoded once per test run (see `InputImageProgram`) and
+     * copied into the work image, the inputs of the model are not changed.
      */
     @Override
     protected void handleInputs() {
-        for (Input input : inputList) {
-            if (inputvaluemap.containsKey(input.getStartAddress())) {
-                if (input instanceof InputBit) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = inputvaluemap.get(input.getStartAddress());
-                    S7.SetBitAt(db1ReadBuffer, 0, input.getBitAddress(), (boolean) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputByte) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = inputvaluemap.get(input.getStartAddress());
-                    db1ReadBuffer[0] = (byte) ((short) input.getValue() & 0xFF);
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputWord) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = inputvaluemap.get(input.getStartAddress());
-                    S7.SetWordAt(db1ReadBuffer, 0, (int) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputDWord) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = inputvaluemap.get(input.getStartAddress());
-                    S7.SetDWordAt(db1ReadBuffer, 0, (long) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputInt) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = inputvaluemap.get(input.getStartAddress());
-                    S7.SetShortAt(db1ReadBuffer, 0, (short) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputDInt) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = inputvaluemap.get(input.getStartAddress());
-                    S7.SetDIntAt(db1ReadBuffer, 0, (int) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputReal) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = inputvaluemap.get(input.getStartAddress());
-                    S7.SetFloatAt(db1ReadBuffer, 0, (float) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                }
-            } else {
-                if (input instanceof InputBit) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = new byte[1];
-                    S7.SetBitAt(db1ReadBuffer, 0, input.getBitAddress(), (boolean) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-
-                } else if (input instanceof InputByte) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = new byte[1];
-                    db1ReadBuffer[0] = (byte) ((short) input.getValue() & 0xFF);
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputWord) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = new byte[4];
-                    S7.SetShortAt(db1ReadBuffer, 0, (int) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputDWord) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = new byte[8];
-                    S7.SetDWordAt(db1ReadBuffer, 0, (long) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputInt) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = new byte[2];
-                    S7.SetShortAt(db1ReadBuffer, 0, (short) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputDInt) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = new byte[4];
-                    S7.SetDIntAt(db1ReadBuffer, 0, (int) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                } else if (input instanceof InputReal) {
-                    input.setValue(input.getInitialValue());
-                    byte[] db1ReadBuffer = new byte[4];
-                    S7.SetFloatAt(db1ReadBuffer, 0, (float) input.getValue());
-                    inputvaluemap.put(input.getStartAddress(), db1ReadBuffer);
-                }
+        if (imageprogram == null) {
+            prepareTestRun();
+        }
+        patch = patches.get(transition);
+        if (patch == null) {
+            patch = imageprogram.compile(transition);
+            // The combinations of a combinatorial transition are created for each write, they are not kept.
+            if (!(transition instanceof SequentialTransition && ((SequentialTransition) transition).isCombination())) {
+                patches.put(transition, patch);
             }
         }
     }
 
+    /**
+     * Applies the inputs of the transition to the image.
+     *
+     * Each transition is compiled once per test run into a patch (offsets, bit masks
+     * and encoded values), so this is a copy of the baseline plus the patch.
+     */
     @Override
     protected void handleTransitionInputs() {
-        List<Input> transitioninputList = transition.getInputs();
-        for (Input transitioninput : transitioninputList) {
-            if (transitioninput instanceof InputBit) {
-                byte[] bytevaluebuffer = inputvaluemap.get(transitioninput.getStartAddress());
-                S7.SetBitAt(bytevaluebuffer, 0, transitioninput.getBitAddress(), (boolean) transitioninput.getValue());
-                inputvaluemap.put(transitioninput.getStartAddress(), bytevaluebuffer);
-            } else if (transitioninput instanceof InputByte) {
-                byte[] bytevaluebuffer = inputvaluemap.get(transitioninput.getStartAddress());
-                bytevaluebuffer[0] = (byte) ((short) transitioninput.getValue() & 0xFF);
-                inputvaluemap.put(transitioninput.getStartAddress(), bytevaluebuffer);
-            } else if (transitioninput instanceof InputWord) {
-                byte[] bytevaluebuffer = inputvaluemap.get(transitioninput.getStartAddress());
-                S7.SetWordAt(bytevaluebuffer, 0, (int) transitioninput.getValue());
-                inputvaluemap.put(transitioninput.getStartAddress(), bytevaluebuffer);
-            } else if (transitioninput instanceof InputInt) {
-                byte[] bytevaluebuffer = inputvaluemap.get(transitioninput.getStartAddress());
-                S7.SetShortAt(bytevaluebuffer, 0, (short) transitioninput.getValue());
-                inputvaluemap.put(transitioninput.getStartAddress(), bytevaluebuffer);
-            } else if (transitioninput instanceof InputDInt) {
-                byte[] bytevaluebuffer = inputvaluemap.get(transitioninput.getStartAddress());
-                S7.SetDIntAt(bytevaluebuffer, 0, (int) transitioninput.getValue());
-                inputvaluemap.put(transitioninput.getStartAddress(), bytevaluebuffer);
-            } else if (transitioninput instanceof InputReal) {
-                byte[] bytevaluebuffer = inputvaluemap.get(transitioninput.getStartAddress());
-                S7.SetFloatAt(bytevaluebuffer, 0, (float) transitioninput.getValue());
-                inputvaluemap.put(transitioninput.getStartAddress(), bytevaluebuffer);
-            }
-        }
+        imageprogram.buildImage(patch, image);
     }
 
      /**
@@ -205,8 +129,9 @@ public class TransitionPlcTest extends TransitionTest {
      * Each input type (Bit, Byte, Word, etc.) is handled
      * specifically to update the buffer with the correct data representation.
      *
-     * The method controls the pdu length. If it data to  the max PDU size it wil
-     * convert the data into bytesarrays 
+     * The first transition of a test run writes the whole image. The next ones
+     * only write the byte ranges that differ from the image last written, see
+     * `writeImageToPlc`.
      * 
      * - InputBit: Updates a specific bit within the buffer. 
      * - InputByte: Updates the first byte of the buffer. 
@@ -219,10 +144,8 @@ public class TransitionPlcTest extends TransitionTest {
     protected void writeInputsToPlc() {
         notifyTransitionTestObservers("+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+");
         notifyTransitionTestObservers("TransitionID: " + transition.getTransitionID());  
-        // Convert the bytes in the input value map into a single contiguous block of bytes.
-        byte[] bytes = convertToByteArray(inputvaluemap);
-            // Writing the data to a S7 PLC data building block.
-            plcclient.WriteArea(S7.S7AreaDB, databuildingblocknumberinputs, 0, bytes.length, bytes);
+        // Writing the image (or only the bytes that changed) to a S7 PLC data building block.
+        writeImageToPlc(image);
         for (Input input : transition.getInputs()) {
             notifyTransitionTestObservers("InputName: " + input.getName());
             notifyTransitionTestObservers("Input Adress: " + input.getStartAddress());
@@ -236,30 +159,73 @@ public class TransitionPlcTest extends TransitionTest {
     }
     
     /**
-    * Combines all data from the inputValueMap into a single contiguous byte array, 
-    * starting at address 0 and continuing up to the highest address in the input.
-    * Any gaps between data blocks are filled with 0x00.
-    * 
-    * This ensures that all data is placed in the correct order without segmentation 
-    * or size limitations on the final byte array.
-    *
-    * @param inputValueMap A map where the start addresses serve as keys and the corresponding byte arrays as values.
-    * @return A single byte array containing
-    */
-    public byte[] convertToByteArray(HashMap<Short, byte[]> inputValueMap) {
-        int maxaddress = 0;
-        for (Map.Entry<Short, byte[]> entry : inputValueMap.entrySet()) {
-            short startAddress = entry.getKey();
-            int endAddress = startAddress + entry.getValue().length;
-            maxaddress = Math.max(maxaddress, endAddress);
+     * Writes an input image to the PLC.
+     *
+     * Without a known image in the PLC (first transition of the run, different
+     * image size or a failed write) the whole image is written. Otherwise only the
+     * dirty byte ranges are written with multi-variable write jobs. Ranges closer
+     * to each other than the overhead of a separate item are coalesced into one item.
+     *
+     * @param image byte[] - The input image, starting at address 0.
+     */
+    private void writeImageToPlc(byte[] image) {
+        int result;
+        if (writtenimage == null || writtenimage.length != image.length) {
+            result = plcclient.WriteArea(S7.S7AreaDB, databuildingblocknumberinputs, 0, image.length, image);
+        } else {
+            List<S7DataItem[]> telegrams = getDirtyTelegrams(image);
+            result = telegrams.isEmpty() ? 0 : plcclient.WriteMultiVars(telegrams);
+        }
+        if (result == 0) {
+            // Keep the written image, the old one becomes the next work image.
+            byte[] previousimage = writtenimage;
+            writtenimage = image;
+            this.image = (previousimage != null) ? previousimage : new byte[image.length];
+        } else {
+            writtenimage = null;
+        }
+    }
+
+    /**
+     * Groups the bytes of the image that differ from the image last written into
+     * write items, and packs the items into telegrams that fit in the negotiated PDU.
+     * The items point into the image, no data is copied.
+     *
+     * @param image byte[] - The input image to write.
+     * @return List<S7DataItem[]> - The write telegrams, empty if nothing changed.
+     */
+    private List<S7DataItem[]> getDirtyTelegrams(byte[] image) {
+        int pdulength = plcclient.PDULength();
+        int maxamount = pdulength - WRITEHEADERSIZE - WRITEITEMSIZE - 1;
+        List<S7DataItem> items = new ArrayList<>();
+        S7DataItem item = null;
+        for (int i = 0; i < image.length; i++) {
+            if (image[i] == writtenimage[i]) {
+                continue;
+            }
+            if (item != null && i - (item.Start + item.Amount) < WRITEITEMSIZE && i + 1 - item.Start <= maxamount) {
+                item.Amount = i + 1 - item.Start;
+            } else {
+                item = new S7DataItem(S7.S7AreaDB, databuildingblocknumberinputs, i, 1, image, i);
+                items.add(item);
+            }
+        }
+        List<S7DataItem[]> telegrams = new ArrayList<>();
+        List<S7DataItem> telegram = new ArrayList<>();
+        int telegramsize = WRITEHEADERSIZE;
+        for (S7DataItem it : items) {
+            int cost = WRITEITEMSIZE + it.Amount + (it.Amount % 2);
+            if (!telegram.isEmpty() && (telegram.size() >= S7Client.MaxVars || telegramsize + cost > pdulength)) {
+                telegrams.add(telegram.toArray(new S7DataItem[0]));
+                telegram.clear();
+                telegramsize = WRITEHEADERSIZE;
+            }
+            telegram.add(it);
+            telegramsize += cost;
         }
-        byte[] byteArray = new byte[maxaddress];
-        Arrays.fill(byteArray, (byte) 0x00);
-        for (Map.Entry<Short, byte[]> entry : inputValueMap.entrySet()) {
-            short startAddress = entry.getKey();
-            byte[] value = entry.getValue();
-            System.arraycopy(value, 0, byteArray, startAddress, value.length);
+        if (!telegram.isEmpty()) {
+            telegrams.add(telegram.toArray(new S7DataItem[0]));
         }
-        return byteArray;
+        return telegrams;
     }
 }
@@ -7,7 +7,6 @@ import combat_plc_tester.controller.TransitionTestObserver;
 import combat_plc_tester.model.IO.Input;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -41,23 +40,35 @@ public abstract class TransitionTest {
     protected short databuildingblocknumberinputs;
     // The input list of all the inputs used in the test.
     protected List<Input> inputList;
-    // A map with the start address of the input followed by the input value in byte form.
-    protected HashMap<Short, byte[]> inputvaluemap = new HashMap<>();
     // The transition to use to get the inputs to write to the PLC.
     protected Transition transition;
     // List of observers to inform result of the test or the write information.
     protected List<TransitionTestObserver> transitiontestobservers;
+    // Time (of `TestClock`) the inputs of the last transition test were written, -1 if none.
+    protected long writetime = -1;
 
     /**
      * Template Method: Executes the transition test workflow.
      * 1. Handles generic inputs (`handleInputs()`).
      * 2. Handles transition-specific inputs (`handleTransitionInputs()`).
      * 3. Writes the inputs to the PLC (`writeInputsToPlc()`).
+     * The time the write completed is kept (`getWriteTime()`).
      */
     public void doTransitionTest() {
         handleInputs();
         handleTransitionInputs();
         writeInputsToPlc();
+        writetime = TestClock.now();
+    }
+
+    /**
+     * Returns the time the inputs of the last transition test were written, e.g. to measure
+     * the time until the outputs of the next state settle.
+     *
+     * @return long - The time (of `TestClock`) the write completed, -1 if no inputs were written.
+     */
+    public long getWriteTime() {
+        return writetime;
     }
 
     /**
@@ -95,15 +106,6 @@ public abstract class TransitionTest {
         this.inputList = inputList;
     }
 
-    /**
-     * Sets the map of input values for the transition test.
-     *
-     * @param inputvaluemap HashMap<Short, byte[]> - The map of input addresses to values.
-     */
-    public void setInputvaluemap(HashMap<Short, byte[]> inputvaluemap) {
-        this.inputvaluemap = inputvaluemap;
-    }
-
     /**
      * Sets the transition to be tested.
      *
@@ -143,6 +145,13 @@ public abstract class TransitionTest {
      */
     public abstract void notifyTransitionTestObservers(String message); 
     
+    /**
+     * Prepares a test run, called once after connecting to the PLC and before the first
+     * transition test of the run. Work that only depends on the inputs and on the
+     * connection is done here instead of in every transition test.
+     */
+    public abstract void prepareTestRun();
+    
     protected abstract void handleInputs();
     protected abstract void handleTransitionInputs(); 
     protected abstract void writeInputsToPlc();  
@@ -16,14 +16,20 @@ import combat_plc_tester.model.moore.CycleGeneratorAlgorithm;
 import combat_plc_tester.model.IO.PlcInputFactory;
 import combat_plc_tester.model.IO.PlcOutputFactory;
 import combat_plc_tester.model.ModelFacade;
+import combat_plc_tester.model.PlcTarget;
 import combat_plc_tester.model.moore.CycleGenerator;
 import combat_plc_tester.model.moore.StatePlcTest;
 import combat_plc_tester.model.moore.TransitionPlcTest;
 import static combat_plc_tester.view.FlowType.INPUTS;
 import java.awt.Color;
+import java.awt.GridLayout;
 import java.io.File;
+import java.util.List;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
 
 /**
  * Class: CombatPlcTesterView
@@ -184,6 +190,17 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
         jmiSave = new javax.swing.JMenuItem();
         jmiSaveAs = new javax.swing.JMenuItem();
         jmiOpen = new javax.swing.JMenuItem();
+        mnTest = new javax.swing.JMenu();
+        jrbmiAllCycles = new javax.swing.JRadioButtonMenuItem();
+        jrbmiTransitionCoverage = new javax.swing.JRadioButtonMenuItem();
+        jrbmiTransitionPairCoverage = new javax.swing.JRadioButtonMenuItem();
+        jSeparator1 = new javax.swing.JPopupMenu.Separator();
+        jmiSettleMode = new javax.swing.JMenuItem();
+        jcbmiTimerSampling = new javax.swing.JCheckBoxMenuItem();
+        jcbmiPrefixSharing = new javax.swing.JCheckBoxMenuItem();
+        jmiAddPlcTarget = new javax.swing.JMenuItem();
+        jmiRemovePlcTarget = new javax.swing.JMenuItem();
+        bgCycleStrategy = new javax.swing.ButtonGroup();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
 
@@ -464,6 +481,80 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
 
         jmbProject.add(mnProject);
 
+        mnTest.setText("Test Settings");
+
+        bgCycleStrategy.add(jrbmiAllCycles);
+        jrbmiAllCycles.setSelected(true);
+        jrbmiAllCycles.setText("All Cycles");
+        jrbmiAllCycles.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jrbmiAllCyclesActionPerformed(evt);
+            }
+        });
+        mnTest.add(jrbmiAllCycles);
+
+        bgCycleStrategy.add(jrbmiTransitionCoverage);
+        jrbmiTransitionCoverage.setText("Transition Coverage");
+        jrbmiTransitionCoverage.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jrbmiTransitionCoverageActionPerformed(evt);
+            }
+        });
+        mnTest.add(jrbmiTransitionCoverage);
+
+        bgCycleStrategy.add(jrbmiTransitionPairCoverage);
+        jrbmiTransitionPairCoverage.setText("Transition Pair Coverage");
+        jrbmiTransitionPairCoverage.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jrbmiTransitionPairCoverageActionPerformed(evt);
+            }
+        });
+        mnTest.add(jrbmiTransitionPairCoverage);
+
+        mnTest.add(jSeparator1);
+
+        jmiSettleMode.setText("Settle Mode");
+        jmiSettleMode.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jmiSettleModeActionPerformed(evt);
+            }
+        });
+        mnTest.add(jmiSettleMode);
+
+        jcbmiTimerSampling.setText("Timer Condition Sampling");
+        jcbmiTimerSampling.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jcbmiTimerSamplingActionPerformed(evt);
+            }
+        });
+        mnTest.add(jcbmiTimerSampling);
+
+        jcbmiPrefixSharing.setText("Prefix Sharing Test Plan");
+        jcbmiPrefixSharing.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jcbmiPrefixSharingActionPerformed(evt);
+            }
+        });
+        mnTest.add(jcbmiPrefixSharing);
+
+        jmiAddPlcTarget.setText("Add PLC Target");
+        jmiAddPlcTarget.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jmiAddPlcTargetActionPerformed(evt);
+            }
+        });
+        mnTest.add(jmiAddPlcTarget);
+
+        jmiRemovePlcTarget.setText("Remove PLC Target");
+        jmiRemovePlcTarget.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jmiRemovePlcTargetActionPerformed(evt);
+            }
+        });
+        mnTest.add(jmiRemovePlcTarget);
+
+        jmbProject.add(mnTest);
+
         setJMenuBar(jmbProject);
 
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
@@ -741,6 +832,158 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
                     );
                 }    
     }//GEN-LAST:event_jmiProjectNameActionPerformed
+
+    /**
+    * Handles the selection of a cycle generation strategy in the "Test Settings" menu:
+    * all the cycles, the cycles covering every transition, or the cycles covering every
+    * pair of consecutive transitions.
+    *
+    * @param evt The action event triggered by selecting the menu item.
+    */
+    private void jrbmiAllCyclesActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jrbmiAllCyclesActionPerformed
+        applyTestSettings();
+    }//GEN-LAST:event_jrbmiAllCyclesActionPerformed
+
+    private void jrbmiTransitionCoverageActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jrbmiTransitionCoverageActionPerformed
+        applyTestSettings();
+    }//GEN-LAST:event_jrbmiTransitionCoverageActionPerformed
+
+    private void jrbmiTransitionPairCoverageActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jrbmiTransitionPairCoverageActionPerformed
+        applyTestSettings();
+    }//GEN-LAST:event_jrbmiTransitionPairCoverageActionPerformed
+
+    /**
+    * Handles the action event triggered by selecting the "Settle Mode" menu item.
+    * 
+    * Workflow:
+    * - Asks the number of consecutive matching reads after which a state passes, showing the
+    *   current number (0 waits the fixed cycletime * ScalingFactor after each transition).
+    * - If the user enters a number, it is validated and set by the `TestController`.
+    * 
+    * @param evt The action event triggered by selecting the "Settle Mode" menu item.
+    */
+    private void jmiSettleModeActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jmiSettleModeActionPerformed
+        Object settlereads = JOptionPane.showInputDialog(
+                this,
+                "Consecutive matching reads for a state to pass (0 = fixed wait):",
+                "Settle Mode",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                testcontroller.getSettleMode()
+        );
+        if (settlereads != null) {
+            testcontroller.setSettleMode(settlereads.toString().trim());
+        }
+    }//GEN-LAST:event_jmiSettleModeActionPerformed
+
+    /**
+    * Handles the action event triggered by selecting the "Timer Condition Sampling" menu item:
+    * when checked, the outputs are read continuously during a timer condition and the
+    * switching time is checked against TimerCondition +/- TimerConditionTolerance.
+    * 
+    * @param evt The action event triggered by selecting the "Timer Condition Sampling" menu item.
+    */
+    private void jcbmiTimerSamplingActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jcbmiTimerSamplingActionPerformed
+        applyTestSettings();
+    }//GEN-LAST:event_jcbmiTimerSamplingActionPerformed
+
+    /**
+    * Handles the action event triggered by selecting the "Prefix Sharing Test Plan" menu item:
+    * when checked, the cycles are tested in the order of a test plan that shares their common
+    * prefixes instead of in the generated order, each from the initial state.
+    * 
+    * @param evt The action event triggered by selecting the "Prefix Sharing Test Plan" menu item.
+    */
+    private void jcbmiPrefixSharingActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jcbmiPrefixSharingActionPerformed
+        applyTestSettings();
+    }//GEN-LAST:event_jcbmiPrefixSharingActionPerformed
+
+    /**
+    * Handles the action event triggered by selecting the "Add PLC Target" menu item.
+    * 
+    * Workflow:
+    * - Displays a dialog with the connection fields of the PLC target: IP address, rack, slot
+    *   and the data block numbers of the inputs and outputs.
+    * - If the user confirms, the target is validated and added by the `TestController`. The
+    *   cycles of a test run are then divided over the PLC of the properties and the targets.
+    * 
+    * @param evt The action event triggered by selecting the "Add PLC Target" menu item.
+    */
+    private void jmiAddPlcTargetActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jmiAddPlcTargetActionPerformed
+        JTextField txtIPaddress = new JTextField("192.168.0.2");
+        JTextField txtRack = new JTextField("0");
+        JTextField txtSlot = new JTextField("1");
+        JTextField txtDBInputs = new JTextField("1");
+        JTextField txtDBOutputs = new JTextField("2");
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        panel.add(new JLabel("IP address:"));
+        panel.add(txtIPaddress);
+        panel.add(new JLabel("Rack:"));
+        panel.add(txtRack);
+        panel.add(new JLabel("Slot:"));
+        panel.add(txtSlot);
+        panel.add(new JLabel("Data Block Number Inputs:"));
+        panel.add(txtDBInputs);
+        panel.add(new JLabel("Data Block Number Outputs:"));
+        panel.add(txtDBOutputs);
+        int response = JOptionPane.showConfirmDialog(
+                this,
+                panel,
+                "Add PLC Target",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE
+        );
+        if (response == JOptionPane.OK_OPTION) {
+            testcontroller.addPlcTarget(txtIPaddress.getText(), txtRack.getText(), txtSlot.getText(),
+                    txtDBInputs.getText(), txtDBOutputs.getText());
+        }
+    }//GEN-LAST:event_jmiAddPlcTargetActionPerformed
+
+    /**
+    * Handles the action event triggered by selecting the "Remove PLC Target" menu item.
+    * 
+    * Workflow:
+    * - Displays the PLC targets added to the model, or a message if there are none.
+    * - If the user selects a target, it is removed by the `TestController`.
+    * 
+    * @param evt The action event triggered by selecting the "Remove PLC Target" menu item.
+    */
+    private void jmiRemovePlcTargetActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jmiRemovePlcTargetActionPerformed
+        List<PlcTarget> plctargets = testcontroller.getPlcTargets();
+        if (plctargets.isEmpty()) {
+            JOptionPane.showMessageDialog(
+                this,
+                "No PLC targets have been added.",
+                "Remove PLC Target",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return;
+        }
+        Object plctarget = JOptionPane.showInputDialog(
+                this,
+                "Select the PLC target to remove:",
+                "Remove PLC Target",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                plctargets.toArray(),
+                plctargets.get(0)
+        );
+        if (plctarget != null) {
+            testcontroller.removePlcTarget((PlcTarget) plctarget);
+        }
+    }//GEN-LAST:event_jmiRemovePlcTargetActionPerformed
+
+    /**
+    * Applies the selections of the "Test Settings" menu to the test controller. Called when a
+    * selection changes and after a new test controller is created, so the settings are kept
+    * over a new project.
+    */
+    public void applyTestSettings() {
+        testcontroller.setCycleCoverage(!jrbmiAllCycles.isSelected(), jrbmiTransitionPairCoverage.isSelected());
+        testcontroller.setTimerSampling(jcbmiTimerSampling.isSelected());
+        testcontroller.setPrefixSharing(jcbmiPrefixSharing.isSelected());
+    }
    
     /**
     * Entry point of the application.
@@ -795,7 +1038,8 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
     * 1. Resets all elements in the `ModelFacade` to their default state.
     * 2. Initializes the `ModelFacade` with data from the `CombatPlcTesterView`.
     * 3. Creates a new `TestController` with references to the view and necessary factories (`PlcInputFactory` and `PlcOutputFactory`).
-    * 4. Links the `TestController` to all relevant view components (properties view, input/output list views).
+    * 4. Links the `TestController` to all relevant view components (properties view, input/output list views)
+    *    and applies the selections of the "Test Settings" menu to it.
     * 5. Creates and associates a `GraphController` to handle graph-based operations in the `ModelView`.
     * 6. Updates the `ModelView` with the current state, transition, and label graph element lists from the `TestController`.
     *
@@ -817,6 +1061,7 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
             combatplctesterview.getSequentialTransitionView().setTestController(testcontroller);
             combatplctesterview.getCombinatorialTransitionView().setTestController(testcontroller);
             combatplctesterview.getTestView().setTestController(testcontroller);
+            combatplctesterview.applyTestSettings();
 
             GraphController graphcontroller = new GraphController(testcontroller);
             combatplctesterview.getModelView().setGraphController(graphcontroller);
@@ -835,7 +1080,8 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
     *
     * Workflow:
     * 1. Assigns an `S7Client` instance to the `ModelFacade` to facilitate communication with the PLC.
-    * 2. Configures a `CycleGenerator` instance with the desired strategy (`CycleGeneratorAlgorithm`) and sets it in the `ModelFacade`.
+    * 2. Configures a `CycleGenerator` instance with the default strategy (`CycleGeneratorAlgorithm`) and sets it in the `ModelFacade`.
+    *    The strategy selected in the "Test Settings" menu is applied by the `TestController`.
     * 3. Sets up the state and transition test implementations (`StatePlcTest` and `TransitionPlcTest`) in the `ModelFacade`.
     * 4. Adds observers (`StatePlcTestObserver` and `TransitionPlcTestObserver`) to monitor and update the test view during test execution.
     * 5. Updates the main application window's title to reflect the current project name from the `ModelFacade`.
@@ -856,6 +1102,7 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
     }
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.ButtonGroup bgCycleStrategy;
     private javax.swing.JButton btnCombinatorialTransition;
     private javax.swing.JButton btnLabel;
     private javax.swing.JButton btnRedo;
@@ -873,14 +1120,24 @@ public class CombatPlcTesterView extends javax.swing.JFrame {
     private javax.swing.JPanel jPanel3;
     private javax.swing.JPanel jPanel4;
     private javax.swing.JPanel jPanel5;
+    private javax.swing.JPopupMenu.Separator jSeparator1;
+    private javax.swing.JCheckBoxMenuItem jcbmiPrefixSharing;
+    private javax.swing.JCheckBoxMenuItem jcbmiTimerSampling;
     private javax.swing.JMenuBar jmbProject;
+    private javax.swing.JMenuItem jmiAddPlcTarget;
     private javax.swing.JMenuItem jmiNewProject;
     private javax.swing.JMenuItem jmiOpen;
     private javax.swing.JMenuItem jmiProjectName;
+    private javax.swing.JMenuItem jmiRemovePlcTarget;
     private javax.swing.JMenuItem jmiSave;
     private javax.swing.JMenuItem jmiSaveAs;
+    private javax.swing.JMenuItem jmiSettleMode;
+    private javax.swing.JRadioButtonMenuItem jrbmiAllCycles;
+    private javax.swing.JRadioButtonMenuItem jrbmiTransitionCoverage;
+    private javax.swing.JRadioButtonMenuItem jrbmiTransitionPairCoverage;
     private javax.swing.JTabbedPane jtpFlow;
     private javax.swing.JMenu mnProject;
+    private javax.swing.JMenu mnTest;
     private combat_plc_tester.view.ModelView modelView;
     private combat_plc_tester.view.OutputListView outputlistview;
     private combat_plc_tester.view.PropertiesView propertiesview;
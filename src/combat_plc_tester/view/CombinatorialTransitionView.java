@@ -10,13 +10,23 @@ package combat_plc_tester.view;
 import combat_plc_tester.controller.Command;
 import combat_plc_tester.controller.DeleteTransitionCommand;
 import combat_plc_tester.controller.TestController;
+import combat_plc_tester.model.moore.CombinatorialTransition;
 import combat_plc_tester.model.moore.GraphElement;
 import combat_plc_tester.model.IO.Input;
 import combat_plc_tester.model.IO.InputBit;
 import combat_plc_tester.model.moore.Transition;
 import combat_plc_tester.model.moore.SequentialTransition;
+import java.awt.BorderLayout;
+import java.util.ArrayList;
 import java.util.List;
+import javax.swing.DefaultListModel;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
 import javax.swing.table.DefaultTableModel;
 
 /**
@@ -34,6 +44,8 @@ import javax.swing.table.DefaultTableModel;
 public class CombinatorialTransitionView extends javax.swing.JPanel {
 
     private TestController testcontroller;          // The test controller.
+    private CombinatorialTransition combinatorialtransition;   // The displayed combinatorial transition, or null.
+    private List<Input> bitinputList = new ArrayList<>();      // The bit-type inputs of the model.
     
     /**
     * Initializes the components of the `CombinatorialTransitionView` class, which represents the graphical 
@@ -56,6 +68,7 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
     * 1. Clears all items from the `cmbTransitionInput` combo box.
     * 2. Iterates through the provided list of inputs:
     *    - Adds each input to the combo box, excluding inputs of type `InputBit`.
+    *    - Keeps the inputs of type `InputBit` to select the relevant inputs.
     * 3. Checks if the combo box contains any items:
     *    - If no items exist, disables and clears the transition input value text field.
     *    - Otherwise, enables the text field for user input.
@@ -64,9 +77,12 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
     */
     public void viewInputs(List<Input> inputList) {
         cmbTransitionInput.removeAllItems();
+        bitinputList.clear();
         for (Input input : inputList) {
             if (!(input instanceof InputBit)) {
                 cmbTransitionInput.addItem(input.getInputID() + " " + input.getName());
+            } else {
+                bitinputList.add(input);
             }
         }
         if (cmbTransitionInput.getItemCount() == 0) {
@@ -83,6 +99,7 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
     */
     public void resetviewInputs(){    
          cmbTransitionInput.removeAllItems();
+         bitinputList.clear();
     } 
     
     /**
@@ -174,7 +191,8 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
     /**
     * Displays the details of the specified transition in the combinatorial transition view. 
     * If a transition is provided, its ID and name are displayed in their respective text fields.
-    * If no transition is provided (`null`), the fields are cleared.
+    * If no transition is provided (`null`), the fields are cleared. The transition is kept to show
+    * its current settings in the dialogs of the view.
     *
     * Workflow:
     * 1. Checks if the provided `transition` is not `null`.
@@ -188,6 +206,7 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
     *                   If `null`, the fields are reset.
     */
     public void viewTransition(Transition transition) {
+        combinatorialtransition = transition instanceof CombinatorialTransition ? (CombinatorialTransition) transition : null;
         if (transition != null) {
             txtCombinatorialTransitionID.setText(transition.getTransitionID());
             txtTransitionName.setText(transition.getName());
@@ -239,11 +258,13 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
         tblSequentialTransitions = new javax.swing.JTable();
         btnDeleteSelectedSeqTransition = new javax.swing.JButton();
         cmbTransitionInput = new javax.swing.JComboBox<>();
+        btnCoveringStrength = new javax.swing.JButton();
+        btnRelevantInputs = new javax.swing.JButton();
 
         setBackground(new java.awt.Color(50, 70, 110));
         setBorder(javax.swing.BorderFactory.createTitledBorder(null, "Combinatorial Transition: Sequential Transitions & Inputs", javax.swing.border.TitledBorder.DEFAULT_JUSTIFICATION, javax.swing.border.TitledBorder.DEFAULT_POSITION, new java.awt.Font("Segoe UI", 1, 12), new java.awt.Color(255, 255, 255))); // NOI18N
         setForeground(new java.awt.Color(255, 255, 255));
-        setPreferredSize(new java.awt.Dimension(340, 515));
+        setPreferredSize(new java.awt.Dimension(340, 560));
 
         btnDeleteSelectedInput.setBackground(new java.awt.Color(27, 38, 61));
         btnDeleteSelectedInput.setForeground(new java.awt.Color(255, 255, 255));
@@ -396,6 +417,24 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
             }
         });
 
+        btnCoveringStrength.setBackground(new java.awt.Color(27, 38, 61));
+        btnCoveringStrength.setForeground(new java.awt.Color(255, 255, 255));
+        btnCoveringStrength.setText("Covering Strength");
+        btnCoveringStrength.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                btnCoveringStrengthActionPerformed(evt);
+            }
+        });
+
+        btnRelevantInputs.setBackground(new java.awt.Color(27, 38, 61));
+        btnRelevantInputs.setForeground(new java.awt.Color(255, 255, 255));
+        btnRelevantInputs.setText("Relevant Inputs");
+        btnRelevantInputs.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                btnRelevantInputsActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -417,6 +456,7 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
                         .addGap(18, 18, 18)
                         .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                             .addComponent(btnDeleteTransition, javax.swing.GroupLayout.PREFERRED_SIZE, 132, javax.swing.GroupLayout.PREFERRED_SIZE)
+                            .addComponent(btnCoveringStrength, javax.swing.GroupLayout.PREFERRED_SIZE, 132, javax.swing.GroupLayout.PREFERRED_SIZE)
                             .addComponent(btnUpdateTransition, javax.swing.GroupLayout.PREFERRED_SIZE, 132, javax.swing.GroupLayout.PREFERRED_SIZE)
                             .addComponent(txtTransitionName, javax.swing.GroupLayout.DEFAULT_SIZE, 108, Short.MAX_VALUE)
                             .addComponent(jLabel3)
@@ -441,6 +481,7 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
                     .addComponent(jLabel1)
                     .addComponent(cmbSequentialTransitions, 0, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(btnAddSequentialTransition, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                    .addComponent(btnRelevantInputs, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(cmbTransitionInput, 0, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                 .addGap(16, 16, 16))
         );
@@ -496,6 +537,10 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(btnDeleteTransition)
                     .addComponent(btnAddSequentialTransition, javax.swing.GroupLayout.Alignment.TRAILING))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                    .addComponent(btnCoveringStrength)
+                    .addComponent(btnRelevantInputs, javax.swing.GroupLayout.Alignment.TRAILING))
                 .addGap(18, 18, 18))
         );
 
@@ -555,13 +600,93 @@ public class CombinatorialTransitionView extends javax.swing.JPanel {
         testcontroller.addSequentialToCombinatorialTransition(txtCombinatorialTransitionID.getText(), parts[0]);
     }//GEN-LAST:event_btnAddSequentialTransitionActionPerformed
 
+    /**
+    * Handles the action event triggered by the "Covering Strength" button: asks the covering
+    * strength t of the combinatorial transition, showing the current strength, and sets it
+    * in the `TestController` (0 tests all combinations).
+    *
+    * @param evt the `ActionEvent` triggered by clicking the "Covering Strength" button.
+    */
+    private void btnCoveringStrengthActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnCoveringStrengthActionPerformed
+        Object coveringstrength = JOptionPane.showInputDialog(
+                this,
+                "Covering strength t (0 = all combinations):",
+                "Covering Strength",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                combinatorialtransition == null ? 0 : combinatorialtransition.getCoveringStrength()
+        );
+        if (coveringstrength != null) {
+            testcontroller.setCoveringStrength(txtCombinatorialTransitionID.getText(), coveringstrength.toString().trim());
+        }
+    }//GEN-LAST:event_btnCoveringStrengthActionPerformed
+
+    /**
+    * Handles the action event triggered by the "Relevant Inputs" button.
+    *
+    * Workflow:
+    * 1. Shows the bit-type inputs of the model, with the relevant inputs of the combinatorial
+    *    transition selected, and whether the relevant inputs are inferred from its sequential
+    *    transitions to exclude when none are selected.
+    * 2. If the user confirms, the inputs selected or deselected are added to or deleted from the
+    *    relevant inputs in the `TestController`, and the infer setting is set.
+    *
+    * @param evt the `ActionEvent` triggered by clicking the "Relevant Inputs" button.
+    */
+    private void btnRelevantInputsActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnRelevantInputsActionPerformed
+        String combinatorialTransitionID = txtCombinatorialTransitionID.getText();
+        if (combinatorialtransition == null || bitinputList.isEmpty()) {
+            exceptionErrorView("No combinatorial transition or bit-type inputs to select.");
+            return;
+        }
+        List<String> relevantinputs = new ArrayList<>(combinatorialtransition.getRelevantInputs());
+        DefaultListModel<String> listmodel = new DefaultListModel<>();
+        for (Input input : bitinputList) {
+            listmodel.addElement(input.getInputID() + " " + input.getName());
+        }
+        JList<String> lstInputs = new JList<>(listmodel);
+        lstInputs.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        for (int i = 0; i < bitinputList.size(); i++) {
+            if (relevantinputs.contains(bitinputList.get(i).getInputID())) {
+                lstInputs.addSelectionInterval(i, i);
+            }
+        }
+        JCheckBox chkInferRelevantInputs = new JCheckBox("Infer from the sequential transitions when none are selected",
+                combinatorialtransition.getInferRelevantInputs());
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(new JLabel("Bit-type inputs combined by the transition:"), BorderLayout.NORTH);
+        panel.add(new JScrollPane(lstInputs), BorderLayout.CENTER);
+        panel.add(chkInferRelevantInputs, BorderLayout.SOUTH);
+        int response = JOptionPane.showConfirmDialog(
+                this,
+                panel,
+                "Relevant Inputs",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE
+        );
+        if (response == JOptionPane.OK_OPTION) {
+            for (int i = 0; i < bitinputList.size(); i++) {
+                String inputID = bitinputList.get(i).getInputID();
+                if (lstInputs.isSelectedIndex(i) && !relevantinputs.contains(inputID)) {
+                    testcontroller.addRelevantInputToCombinatorialTransition(combinatorialTransitionID, inputID);
+                } else if (!lstInputs.isSelectedIndex(i) && relevantinputs.contains(inputID)) {
+                    testcontroller.deleteRelevantInputFromCombinatorialTransition(combinatorialTransitionID, inputID);
+                }
+            }
+            testcontroller.setInferRelevantInputs(combinatorialTransitionID, chkInferRelevantInputs.isSelected());
+        }
+    }//GEN-LAST:event_btnRelevantInputsActionPerformed
+
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton btnAddSequentialTransition;
     private javax.swing.JButton btnAddTransitionInput;
+    private javax.swing.JButton btnCoveringStrength;
     private javax.swing.JButton btnDeleteSelectedInput;
     private javax.swing.JButton btnDeleteSelectedSeqTransition;
     private javax.swing.JButton btnDeleteTransition;
+    private javax.swing.JButton btnRelevantInputs;
     private javax.swing.JButton btnUpdateSelectedInput;
     private javax.swing.JButton btnUpdateTransition;
     private javax.swing.JComboBox<String> cmbSequentialTransitions;